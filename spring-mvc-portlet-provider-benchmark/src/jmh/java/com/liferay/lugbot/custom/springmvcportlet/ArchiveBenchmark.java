@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures extracting zip and 7z archives of synthetic sources with
+ * {@link SpringMVCPortletHelper}.
+ *
+ * @author Gregory Amerson
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(1)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class ArchiveBenchmark {
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() throws IOException {
+		BenchmarkSupport.deleteQuietly(_toPath);
+
+		Files.createDirectories(_toPath);
+	}
+
+	@Setup
+	public void setUpTrial() throws IOException {
+		_tempPath = Files.createTempDirectory("archive-benchmark");
+
+		_upgradeExecutors = BenchmarkSupport.upgradeExecutors();
+
+		_sevenZPath = _tempPath.resolve("archive.7z");
+		_toPath = _tempPath.resolve("extracted");
+		_zipPath = _tempPath.resolve("archive.zip");
+
+		Random random = new Random(entryCount);
+
+		Set<String> dirNames = new HashSet<>();
+
+		try (SevenZOutputFile sevenZOutputFile = new SevenZOutputFile(_sevenZPath.toFile());
+			ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(_zipPath))) {
+
+			for (int i = 0; i < entryCount; i++) {
+				String name = "src/main/java/pkg" + (i % 50) + "/File" + i + ".java";
+
+				byte[] bytes = BenchmarkSupport.randomText(random, entrySize).getBytes(StandardCharsets.UTF_8);
+
+				SevenZArchiveEntry sevenZArchiveEntry = new SevenZArchiveEntry();
+
+				sevenZArchiveEntry.setName(name);
+				sevenZArchiveEntry.setSize(bytes.length);
+
+				sevenZOutputFile.putArchiveEntry(sevenZArchiveEntry);
+				sevenZOutputFile.write(bytes);
+				sevenZOutputFile.closeArchiveEntry();
+
+				for (int j = name.indexOf('/'); j > 0; j = name.indexOf('/', j + 1)) {
+					String dirName = name.substring(0, j + 1);
+
+					if (dirNames.add(dirName)) {
+						zipOutputStream.putNextEntry(new ZipEntry(dirName));
+						zipOutputStream.closeEntry();
+					}
+				}
+
+				zipOutputStream.putNextEntry(new ZipEntry(name));
+				zipOutputStream.write(bytes);
+				zipOutputStream.closeEntry();
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkSupport.deleteQuietly(_tempPath);
+
+		_upgradeExecutors.deactivate();
+	}
+
+	@Benchmark
+	public void un7zip() throws IOException {
+		SpringMVCPortletHelper.un7zip(_sevenZPath, _toPath, "module");
+	}
+
+	@Benchmark
+	public void unzip() throws Exception {
+		SpringMVCPortletHelper.unzip(_zipPath, _toPath, "module", _upgradeExecutors.getIOExecutorService());
+	}
+
+	@Param({"100", "5000"})
+	public int entryCount;
+
+	@Param("8192")
+	public int entrySize;
+
+	private Path _sevenZPath;
+	private Path _tempPath;
+	private Path _toPath;
+	private UpgradeExecutors _upgradeExecutors;
+	private Path _zipPath;
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.ide.upgrade.problems.core.AutoFileMigrator;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ExclusionRules;
+import com.liferay.lugbot.custom.springmvcportlet.helper.GeneratedSourceDetector;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Measures the migrator dispatch of the auto-correct provider with migrators
+ * that only read the files they are given. The repository inventory is taken
+ * once in setup, as it is once per upgrade run.
+ *
+ * @author Gregory Amerson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class AutoCorrectAnalysisBenchmark {
+
+	@Benchmark
+	public int getUpgradeProblems() throws IOException {
+		try (TimeBudget timeBudget = new TimeBudget(0, 0, 0);
+			UpgradeProblemCollector upgradeProblemCollector = _provider.getUpgradeProblems(
+				_autoFileMigratorIndex, _repositoryInventory, _workspacePath, Optional.empty(), false, timeBudget,
+				new RunSummary("AutoCorrectAnalysisBenchmark"))) {
+
+			return upgradeProblemCollector.getProblemCount();
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		_upgradeExecutors = BenchmarkSupport.upgradeExecutors();
+
+		_workspacePath = Files.createTempDirectory("analysis-benchmark");
+
+		BenchmarkSupport.createWorkspace(_workspacePath, fileCount, fileSize);
+
+		_repositoryInventory = RepositoryInventory.load(
+			_workspacePath, ExclusionRules.NONE, false,
+			new GeneratedSourceDetector(
+				GeneratedSourceDetector.DEFAULT_MARKERS, GeneratedSourceDetector.DEFAULT_HEADER_SIZE),
+			Long.MAX_VALUE);
+
+		_repositoryInventory.refresh(_upgradeExecutors.getIOExecutorService(), parallelism);
+
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("analysis.cache.enabled", "false");
+		properties.put("analysis.parallelism", String.valueOf(parallelism));
+
+		_provider = new SpringMVCPortletAutoCorrectBreakingChangesProvider();
+
+		BenchmarkSupport.inject(_provider, "_logger", BenchmarkSupport.logger());
+		BenchmarkSupport.inject(_provider, "_upgradeExecutors", _upgradeExecutors);
+
+		_provider.activate(BenchmarkSupport.componentContext(properties));
+
+		Map<ServiceReference<AutoFileMigrator>, AutoFileMigrator> autoFileMigrators = new HashMap<>();
+
+		autoFileMigrators.put(
+			BenchmarkSupport.serviceReference(1, "java-migrator", "java"),
+			BenchmarkSupport.readingAutoFileMigrator());
+		autoFileMigrators.put(
+			BenchmarkSupport.serviceReference(2, "jsp-migrator", "jsp,jspf"),
+			BenchmarkSupport.readingAutoFileMigrator());
+		autoFileMigrators.put(
+			BenchmarkSupport.serviceReference(3, "xml-migrator", "xml"), BenchmarkSupport.readingAutoFileMigrator());
+
+		_autoFileMigratorIndex = new AutoFileMigratorIndex(autoFileMigrators);
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkSupport.deleteQuietly(_workspacePath);
+
+		_upgradeExecutors.deactivate();
+	}
+
+	@Param({"1000", "10000"})
+	public int fileCount;
+
+	@Param("4096")
+	public int fileSize;
+
+	@Param({"1", "8"})
+	public int parallelism;
+
+	private AutoFileMigratorIndex _autoFileMigratorIndex;
+	private SpringMVCPortletAutoCorrectBreakingChangesProvider _provider;
+	private RepositoryInventory _repositoryInventory;
+	private UpgradeExecutors _upgradeExecutors;
+	private Path _workspacePath;
+
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.ide.upgrade.plan.core.UpgradeProblem;
+import com.liferay.ide.upgrade.problems.core.AutoFileMigrator;
+import com.liferay.lugbot.custom.springmvcportlet.helper.FileFunctions;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.log.Logger;
+
+/**
+ * Builds synthetic workspaces and the OSGi collaborators the providers need
+ * so their hot paths can be benchmarked outside of a framework.
+ *
+ * @author Gregory Amerson
+ */
+public class BenchmarkSupport {
+
+	public static ComponentContext componentContext(Map<String, Object> properties) {
+		Dictionary<String, Object> dictionary = new Hashtable<>(properties);
+
+		return _proxy(
+			ComponentContext.class,
+			(proxy, method, args) -> {
+				if ("getProperties".equals(method.getName())) {
+					return dictionary;
+				}
+
+				return null;
+			});
+	}
+
+	/**
+	 * Creates {@code fileCount} files spread over plugin-like directories,
+	 * cycling through Java, JSP and XML sources. A build output directory
+	 * that the walk is expected to skip is added to every plugin.
+	 */
+	public static void createWorkspace(Path workspacePath, int fileCount, int fileSize) throws IOException {
+		String[] extensions = {"java", "jsp", "xml"};
+
+		Random random = new Random(fileCount);
+
+		for (int i = 0; i < fileCount; i++) {
+			Path pluginPath = workspacePath.resolve("plugin-" + (i % 20));
+
+			Path dirPath = pluginPath.resolve("src/main/java/pkg" + ((i / 20) % 50));
+
+			Files.createDirectories(dirPath);
+
+			Files.write(
+				dirPath.resolve("File" + i + "." + extensions[i % extensions.length]),
+				randomText(random, fileSize).getBytes(StandardCharsets.UTF_8));
+
+			if (i < 20) {
+				Path classesPath = pluginPath.resolve("docroot/WEB-INF/classes");
+
+				Files.createDirectories(classesPath);
+
+				Files.write(
+					classesPath.resolve("Ignored.java"), randomText(random, fileSize).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	public static void deleteQuietly(Path path) {
+		FileFunctions.deleteQuietly(path.toFile());
+	}
+
+	public static void inject(Object component, String fieldName, Object value) throws Exception {
+		Field field = component.getClass().getDeclaredField(fieldName);
+
+		field.setAccessible(true);
+
+		field.set(component, value);
+	}
+
+	public static Logger logger() {
+		return _proxy(
+			Logger.class,
+			(proxy, method, args) -> {
+				if (method.getReturnType() == boolean.class) {
+					return false;
+				}
+
+				return null;
+			});
+	}
+
+	public static String randomText(Random random, int size) {
+		StringBuilder sb = new StringBuilder(size);
+
+		while (sb.length() < size) {
+			sb.append("import com.liferay.portal.kernel.util.");
+			sb.append(Integer.toHexString(random.nextInt()));
+			sb.append(";\n");
+		}
+
+		sb.setLength(size);
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a migrator that reads the whole file, like the real migrators
+	 * do before parsing it, and reports no problems.
+	 */
+	public static AutoFileMigrator readingAutoFileMigrator() {
+		return new AutoFileMigrator() {
+
+			@Override
+			public List<UpgradeProblem> analyze(File file) {
+				try {
+					Files.readAllBytes(file.toPath());
+				}
+				catch (IOException ioe) {
+					throw new RuntimeException(ioe);
+				}
+
+				return Collections.emptyList();
+			}
+
+			@Override
+			public int correctProblems(File file, Collection<UpgradeProblem> upgradeProblems) {
+				return 0;
+			}
+
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	public static ServiceReference<AutoFileMigrator> serviceReference(
+		long serviceId, String componentName, String fileExtensions) {
+
+		Map<String, Object> properties = new Hashtable<>();
+
+		properties.put("component.name", componentName);
+		properties.put("file.extensions", fileExtensions);
+		properties.put("service.id", serviceId);
+		properties.put("version", "[7.0,8)");
+
+		Bundle bundle = _proxy(
+			Bundle.class,
+			(proxy, method, args) -> {
+				if ("getVersion".equals(method.getName())) {
+					return Version.emptyVersion;
+				}
+
+				return null;
+			});
+
+		return _proxy(
+			ServiceReference.class,
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+					case "compareTo":
+						return Long.compare(
+							serviceId, (Long)((ServiceReference<?>)args[0]).getProperty("service.id"));
+					case "equals":
+						return proxy == args[0];
+					case "getBundle":
+						return bundle;
+					case "getProperty":
+						return properties.get(args[0]);
+					case "hashCode":
+						return Long.hashCode(serviceId);
+					case "toString":
+						return componentName;
+					default:
+						return null;
+				}
+			});
+	}
+
+	/**
+	 * Returns activated executors with the default configuration. Callers
+	 * deactivate them when the trial ends.
+	 */
+	public static UpgradeExecutors upgradeExecutors() {
+		UpgradeExecutors upgradeExecutors = new UpgradeExecutors();
+
+		upgradeExecutors.activate(Collections.emptyMap());
+
+		return upgradeExecutors;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T _proxy(Class<?> clazz, InvocationHandler invocationHandler) {
+		return (T)Proxy.newProxyInstance(
+			BenchmarkSupport.class.getClassLoader(), new Class<?>[] {clazz}, invocationHandler);
+	}
+
+}
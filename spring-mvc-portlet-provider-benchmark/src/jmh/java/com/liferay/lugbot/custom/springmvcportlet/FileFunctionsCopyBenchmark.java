@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.FileFunctions;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures copying and moving synthetic plugin trees. The destinations are
+ * rebuilt before every invocation so each one does the full amount of work,
+ * and moves always merge into an existing, non-empty directory.
+ *
+ * @author Gregory Amerson
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(1)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class FileFunctionsCopyBenchmark {
+
+	@Benchmark
+	public void copyFolder() throws IOException {
+		FileFunctions.copyFolder(_sourcePath, _copyPath);
+	}
+
+	@Benchmark
+	public void moveFile() throws IOException {
+		FileFunctions.moveFile(_movePath, _destPath);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() throws IOException {
+		BenchmarkSupport.deleteQuietly(_copyPath);
+		BenchmarkSupport.deleteQuietly(_destPath);
+		BenchmarkSupport.deleteQuietly(_movePath);
+
+		FileFunctions.copyFolder(_sourcePath, _movePath);
+
+		Files.createDirectories(_destPath.resolve("plugin-0"));
+		Files.write(_destPath.resolve("plugin-0/existing.txt"), new byte[0]);
+	}
+
+	@Setup
+	public void setUpTrial() throws IOException {
+		_tempPath = Files.createTempDirectory("copy-benchmark");
+
+		_sourcePath = _tempPath.resolve("source");
+
+		BenchmarkSupport.createWorkspace(_sourcePath, fileCount, fileSize);
+
+		_copyPath = _tempPath.resolve("copy");
+		_destPath = _tempPath.resolve("dest");
+		_movePath = _tempPath.resolve("move");
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkSupport.deleteQuietly(_tempPath);
+	}
+
+	@Param({"1000", "10000"})
+	public int fileCount;
+
+	@Param("4096")
+	public int fileSize;
+
+	private Path _copyPath;
+	private Path _destPath;
+	private Path _movePath;
+	private Path _sourcePath;
+	private Path _tempPath;
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.FileFunctions;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading a file through a stream with the charset-aware
+ * {@link FileFunctions#read(Path)} and with scanning the
+ * {@link FileFunctions#readContent} view without building a string.
+ *
+ * @author Gregory Amerson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class FileFunctionsReadBenchmark {
+
+	@Benchmark
+	public String read() throws IOException {
+		try (InputStream inputStream = Files.newInputStream(_filePath)) {
+			return FileFunctions.read(inputStream);
+		}
+	}
+
+	@Benchmark
+	public int readContent() throws IOException {
+		CharSequence charSequence = FileFunctions.readContent(
+			_filePath, Long.MAX_VALUE
+		).asCharSequence();
+
+		int lines = 0;
+
+		for (int i = 0; i < charSequence.length(); i++) {
+			if (charSequence.charAt(i) == '\n') {
+				lines++;
+			}
+		}
+
+		return lines;
+	}
+
+	@Benchmark
+	public String readPath() throws IOException {
+		return FileFunctions.read(_filePath);
+	}
+
+	@Setup
+	public void setUp() throws IOException {
+		_filePath = Files.createTempFile("read-benchmark", ".java");
+
+		Files.write(
+			_filePath, BenchmarkSupport.randomText(new Random(fileSize), fileSize).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkSupport.deleteQuietly(_filePath);
+	}
+
+	@Param({"1024", "65536", "1048576", "16777216"})
+	public int fileSize;
+
+	private Path _filePath;
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.ChangeJournal;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ExclusionRules;
+import com.liferay.lugbot.custom.springmvcportlet.helper.GeneratedSourceDetector;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures copying a plugin into a module with the migrate code provider,
+ * both into an empty module and over a module from a previous run.
+ *
+ * @author Rafael Oliveira
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(1)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class MigrateCodeBenchmark {
+
+	@Benchmark
+	public void copyDirectoryRecursively() throws IOException {
+		_provider.copyDirectoryRecursively(
+			_repositoryInventory, _pluginPath, _modulePath, new ChangeJournal(_tempPath),
+			new RunSummary("MigrateCodeBenchmark"));
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() {
+		if (!rerun) {
+			BenchmarkSupport.deleteQuietly(_modulePath);
+		}
+	}
+
+	@Setup
+	public void setUpTrial() throws Exception {
+		_tempPath = Files.createTempDirectory("migrate-code-benchmark");
+
+		_modulePath = _tempPath.resolve("modules/plugin");
+		_pluginPath = _tempPath.resolve("plugins/plugin");
+
+		BenchmarkSupport.createWorkspace(_pluginPath, fileCount, fileSize);
+
+		Files.createDirectories(_modulePath.getParent());
+
+		_repositoryInventory = RepositoryInventory.load(
+			_tempPath, ExclusionRules.NONE, false,
+			new GeneratedSourceDetector(
+				GeneratedSourceDetector.DEFAULT_MARKERS, GeneratedSourceDetector.DEFAULT_HEADER_SIZE),
+			Long.MAX_VALUE);
+
+		_repositoryInventory.refresh(ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+
+		_provider = new SpringMVCPortletMigradeCodeProvider();
+
+		BenchmarkSupport.inject(_provider, "_logger", BenchmarkSupport.logger());
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkSupport.deleteQuietly(_tempPath);
+	}
+
+	@Param({"1000", "10000"})
+	public int fileCount;
+
+	@Param("4096")
+	public int fileSize;
+
+	@Param({"false", "true"})
+	public boolean rerun;
+
+	private Path _modulePath;
+	private Path _pluginPath;
+	private SpringMVCPortletMigradeCodeProvider _provider;
+	private RepositoryInventory _repositoryInventory;
+	private Path _tempPath;
+
+}
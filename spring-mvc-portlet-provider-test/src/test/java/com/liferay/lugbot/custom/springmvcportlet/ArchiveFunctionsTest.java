@@ -0,0 +1,178 @@
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.ArchiveFunctions;
+
+/**
+ * @author Gregory Amerson
+ */
+public class ArchiveFunctionsTest {
+
+	@Test
+	public void testUn7zip(@TempDir Path tempDir) throws Exception {
+		Path sevenZPath = tempDir.resolve("sample.7z");
+
+		byte[] content = new byte[3 * ArchiveFunctions.DEFAULT_BUFFER_SIZE + 17];
+
+		new Random(
+			42
+		).nextBytes(
+			content
+		);
+
+		try (SevenZOutputFile sevenZOutputFile = new SevenZOutputFile(sevenZPath.toFile())) {
+			SevenZArchiveEntry sevenZArchiveEntry = new SevenZArchiveEntry();
+
+			sevenZArchiveEntry.setName("docroot/WEB-INF/lib/large.jar");
+
+			sevenZOutputFile.putArchiveEntry(sevenZArchiveEntry);
+
+			sevenZOutputFile.write(content);
+
+			sevenZOutputFile.closeArchiveEntry();
+		}
+
+		Path toPath = tempDir.resolve("out");
+
+		assertEquals(content.length, ArchiveFunctions.un7zip(sevenZPath, toPath));
+
+		assertArrayEquals(content, Files.readAllBytes(toPath.resolve("docroot/WEB-INF/lib/large.jar")));
+	}
+
+	@Test
+	public void testUnzip(@TempDir Path tempDir) throws Exception {
+		Path zipPath = _zip(tempDir.resolve("sample.zip"), "docroot/WEB-INF/web.xml", "docroot/view.jsp");
+
+		Path toPath = tempDir.resolve("out");
+
+		assertEquals(
+			"docroot/WEB-INF/web.xml".length() + "docroot/view.jsp".length(),
+			ArchiveFunctions.unzip(zipPath, toPath, Runnable::run, 1));
+
+		assertTrue(Files.isRegularFile(toPath.resolve("docroot/WEB-INF/web.xml")));
+		assertTrue(Files.isRegularFile(toPath.resolve("docroot/view.jsp")));
+	}
+
+	@Test
+	public void testUnzipExtractsDuplicateEntriesOnce(@TempDir Path tempDir) throws Exception {
+		Path zipPath = _zip(
+			tempDir.resolve("duplicates.zip"), "docroot/view.jsp", "docroot/./view.jsp", "docroot/../docroot/view.jsp");
+
+		Path toPath = tempDir.resolve("out");
+
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+		try {
+			assertEquals(
+				"docroot/../docroot/view.jsp".length(), ArchiveFunctions.unzip(zipPath, toPath, executorService, 4));
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+
+		assertEquals(
+			"docroot/../docroot/view.jsp",
+			new String(Files.readAllBytes(toPath.resolve("docroot/view.jsp")), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testUnzipInParallelMatchesFixture(@TempDir Path tempDir) throws Exception {
+		Path expectedPath = Files.createDirectories(tempDir.resolve("expected"));
+
+		File repoDir = ZipFunctions.unzipTestRepo("workspace_springmvcportlet.zip", expectedPath);
+
+		Path toPath = tempDir.resolve("actual");
+
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+		try {
+			ArchiveFunctions.unzip(
+				expectedPath.resolve("workspace_springmvcportlet.zip"), toPath, executorService, 4);
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+
+		Map<String, String> expected = _list(repoDir.toPath());
+
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, _list(toPath.resolve(repoDir.getName())));
+	}
+
+	@Test
+	public void testUnzipRejectsZipSlip(@TempDir Path tempDir) throws Exception {
+		Path zipPath = _zip(tempDir.resolve("evil.zip"), "docroot/view.jsp", "docroot/../../evil.txt");
+
+		Path toPath = tempDir.resolve("out");
+
+		IOException ioe = assertThrows(
+			IOException.class, () -> ArchiveFunctions.unzip(zipPath, toPath, Runnable::run, 1));
+
+		assertTrue(ioe.getMessage().contains("evil.txt"), ioe.getMessage());
+
+		assertFalse(Files.exists(tempDir.resolve("evil.txt")));
+		assertFalse(Files.exists(toPath.resolve("docroot/view.jsp")));
+
+		assertThrows(IOException.class, () -> ArchiveFunctions.resolveEntry(toPath, "/etc/passwd"));
+		assertThrows(IOException.class, () -> ArchiveFunctions.resolveEntry(toPath, "../out-sibling/file"));
+	}
+
+	private Map<String, String> _list(Path dirPath) throws Exception {
+		Map<String, String> files = new TreeMap<>();
+
+		try (Stream<Path> stream = Files.walk(dirPath)) {
+			for (Path path : (Iterable<Path>)stream.filter(Files::isRegularFile)::iterator) {
+				files.put(
+					dirPath.relativize(
+						path
+					).toString(),
+					Arrays.toString(Files.readAllBytes(path)));
+			}
+		}
+
+		return files;
+	}
+
+	private Path _zip(Path zipPath, String... names) throws Exception {
+		try (OutputStream outputStream = Files.newOutputStream(zipPath);
+			ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+
+			for (String name : names) {
+				zipOutputStream.putNextEntry(new ZipEntry(name));
+
+				zipOutputStream.write(name.getBytes(StandardCharsets.UTF_8));
+
+				zipOutputStream.closeEntry();
+			}
+		}
+
+		return zipPath;
+	}
+
+}
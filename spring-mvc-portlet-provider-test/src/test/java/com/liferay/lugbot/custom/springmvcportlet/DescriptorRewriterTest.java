@@ -0,0 +1,201 @@
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.DescriptorRewriter;
+
+/**
+ * @author Gregory Amerson
+ */
+public class DescriptorRewriterTest {
+
+	@Test
+	public void testAlreadyUpgradedIsLeftUntouched(@TempDir Path tempDir) throws Exception {
+		String webXml =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n\n" +
+				"<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" " +
+					"xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"3.1\" " +
+						"xsi:schemaLocation=\"http://xmlns.jcp.org/xml/ns/javaee " +
+							"http://xmlns.jcp.org/xml/ns/javaee/web-app_3_1.xsd\">\n" +
+				"\t<display-name>sample</display-name>\n" +
+				"</web-app>\n";
+
+		Path webXmlPath = _write(tempDir, "web.xml", webXml);
+
+		assertFalse(_rewrite(webXmlPath));
+		assertArrayEquals(webXml.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(webXmlPath));
+
+		String liferayPortletXml =
+			"<?xml version=\"1.0\"?>\n" +
+				"<!DOCTYPE liferay-portlet-app PUBLIC \"-//Liferay//DTD Portlet Application 7.2.0//EN\" " +
+					"\"http://www.liferay.com/dtd/liferay-portlet-app_7_2_0.dtd\">\n\n" +
+				"<liferay-portlet-app>\n" +
+				"\t<portlet>\n" +
+				"\t\t<portlet-name>sample</portlet-name>\n" +
+				"\t</portlet>\n" +
+				"</liferay-portlet-app>\n";
+
+		Path liferayPortletXmlPath = _write(tempDir, "liferay-portlet.xml", liferayPortletXml);
+
+		assertFalse(_rewrite(liferayPortletXmlPath));
+		assertArrayEquals(
+			liferayPortletXml.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(liferayPortletXmlPath));
+	}
+
+	@Test
+	public void testCRLFIsKept(@TempDir Path tempDir) throws Exception {
+		Path webXmlPath = _write(
+			tempDir, "web.xml",
+			"<?xml version=\"1.0\"?>\r\n" +
+				"<web-app version=\"2.5\">\r\n" +
+				"\t<display-name>sample</display-name>\r\n" +
+				"</web-app>\r\n");
+
+		assertTrue(_rewrite(webXmlPath));
+
+		String content = _read(webXmlPath);
+
+		assertTrue(content.contains("version=\"3.1\""), content);
+		assertTrue(content.contains("\t<display-name>sample</display-name>\r\n"), content);
+		assertFalse(content.replace("\r\n", "").contains("\n"), content);
+	}
+
+	@Test
+	public void testObsoleteListenersAreRemoved(@TempDir Path tempDir) throws Exception {
+		Path webXmlPath = _write(
+			tempDir, "web.xml",
+			"<?xml version=\"1.0\"?>\n" +
+				"<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"3.1\">\n" +
+				"\t<listener>\n" +
+				"\t\t<listener-class>com.liferay.portal.kernel.servlet.SecurePluginContextListener" +
+					"</listener-class>\n" +
+				"\t</listener>\n" +
+				"\t<listener>\n" +
+				"\t\t<listener-class>com.acme.SampleListener</listener-class>\n" +
+				"\t</listener>\n" +
+				"\t<listener>\n" +
+				"\t\t<listener-class>\n" +
+				"\t\t\tcom.liferay.portal.kernel.spring.context.PortletContextLoaderListener\n" +
+				"\t\t</listener-class>\n" +
+				"\t</listener>\n" +
+				"</web-app>\n");
+
+		assertTrue(_rewrite(webXmlPath));
+
+		String content = _read(webXmlPath);
+
+		assertFalse(content.contains("SecurePluginContextListener"), content);
+		assertFalse(content.contains("PortletContextLoaderListener"), content);
+		assertTrue(
+			content.contains(
+				"\">\n\t<listener>\n\t\t<listener-class>com.acme.SampleListener</listener-class>\n\t</listener>\n" +
+					"</web-app>"),
+			content);
+	}
+
+	@Test
+	public void testPortlet10IsUpgraded(@TempDir Path tempDir) throws Exception {
+		Path portletXmlPath = _write(
+			tempDir, "portlet.xml",
+			"<?xml version=\"1.0\"?>\n" +
+				"<portlet-app xmlns=\"http://java.sun.com/xml/ns/portlet/portlet-app_1_0.xsd\" " +
+					"xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"1.0\" " +
+						"xsi:schemaLocation=\"http://java.sun.com/xml/ns/portlet/portlet-app_1_0.xsd " +
+							"http://java.sun.com/xml/ns/portlet/portlet-app_1_0.xsd\">\n" +
+				"\t<portlet>\n" +
+				"\t\t<portlet-name>sample</portlet-name>\n" +
+				"\t</portlet>\n" +
+				"</portlet-app>\n");
+
+		assertTrue(_rewrite(portletXmlPath));
+
+		String content = _read(portletXmlPath);
+
+		assertTrue(content.contains("xmlns=\"http://java.sun.com/xml/ns/portlet/portlet-app_2_0.xsd\""), content);
+		assertTrue(content.contains("version=\"2.0\""), content);
+		assertFalse(content.contains("portlet-app_1_0.xsd"), content);
+		assertTrue(content.contains("\t\t<portlet-name>sample</portlet-name>\n"), content);
+
+		assertFalse(_rewrite(portletXmlPath));
+	}
+
+	@Test
+	public void testWeb23DoctypeIsReplaced(@TempDir Path tempDir) throws Exception {
+		Path webXmlPath = _write(
+			tempDir, "web.xml",
+			"<?xml version=\"1.0\"?>\n" +
+				"<!DOCTYPE web-app PUBLIC \"-//Sun Microsystems, Inc.//DTD Web Application 2.3//EN\" " +
+					"\"http://java.sun.com/dtd/web-app_2_3.dtd\">\n\n" +
+				"<web-app>\n" +
+				"\t<display-name>sample</display-name>\n" +
+				"</web-app>\n");
+
+		assertTrue(_rewrite(webXmlPath));
+
+		String content = _read(webXmlPath);
+
+		assertFalse(content.contains("DOCTYPE"), content);
+		assertTrue(content.contains("<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\""), content);
+		assertTrue(content.contains("version=\"3.1\""), content);
+		assertTrue(content.contains("web-app_3_1.xsd"), content);
+
+		assertFalse(_rewrite(webXmlPath));
+	}
+
+	@Test
+	public void testWeb24IsUpgraded(@TempDir Path tempDir) throws Exception {
+		Path webXmlPath = _write(
+			tempDir, "web.xml",
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+				"<web-app xmlns=\"http://java.sun.com/xml/ns/j2ee\" " +
+					"xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" version=\"2.4\" " +
+						"xsi:schemaLocation=\"http://java.sun.com/xml/ns/j2ee " +
+							"http://java.sun.com/xml/ns/j2ee/web-app_2_4.xsd\">\n" +
+				"\t<display-name>sample</display-name>\n" +
+				"</web-app>\n");
+
+		assertTrue(_rewrite(webXmlPath));
+
+		String content = _read(webXmlPath);
+
+		assertFalse(content.contains("j2ee"), content);
+		assertTrue(content.contains("xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\""), content);
+		assertTrue(
+			content.contains(
+				"xsi:schemaLocation=\"http://xmlns.jcp.org/xml/ns/javaee " +
+					"http://xmlns.jcp.org/xml/ns/javaee/web-app_3_1.xsd\""),
+			content);
+		assertEquals(1, content.split("version=\"3.1\"", -1).length - 1, content);
+	}
+
+	private String _read(Path path) throws Exception {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+	private boolean _rewrite(Path path) throws Exception {
+		DescriptorRewriter descriptorRewriter = new DescriptorRewriter(DescriptorRewriter.DEFAULT_OBSOLETE_LISTENERS);
+
+		return descriptorRewriter.rewrite(path, DescriptorRewriter.getType(path));
+	}
+
+	private Path _write(Path tempDir, String fileName, String content) throws Exception {
+		Path path = tempDir.resolve("WEB-INF/" + fileName);
+
+		Files.createDirectories(path.getParent());
+
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+
+		return path;
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.ChangeJournal;
+import com.liferay.lugbot.custom.springmvcportlet.helper.DirectorySync;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ExclusionRules;
+import com.liferay.lugbot.custom.springmvcportlet.helper.GeneratedSourceDetector;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+
+/**
+ * @author Gregory Amerson
+ */
+public class DirectorySyncTest {
+
+	@Test
+	public void testSyncDeletesFilesRemovedFromSource(@TempDir Path repoPath) throws Exception {
+		Path fromPath = repoPath.resolve("from");
+		Path toPath = repoPath.resolve("to");
+		Path manifestPath = repoPath.resolve("manifests/sync.manifest");
+
+		_write(fromPath.resolve("src/Kept.java"), "class Kept {}");
+		_write(fromPath.resolve("src/Removed.java"), "class Removed {}");
+
+		RepositoryInventory repositoryInventory = RepositoryInventory.load(
+			repoPath, ExclusionRules.NONE, false,
+			new GeneratedSourceDetector(GeneratedSourceDetector.DEFAULT_MARKERS, 1024), 1024 * 1024);
+
+		repositoryInventory.refresh(Runnable::run, 1);
+
+		DirectorySync directorySync = new DirectorySync(false);
+
+		DirectorySync.Result result = directorySync.sync(
+			repositoryInventory, fromPath, toPath, manifestPath, new ChangeJournal(repoPath));
+
+		assertEquals(2, result.getFilesCopied());
+		assertTrue(Files.exists(toPath.resolve("src/Removed.java")));
+
+		_write(toPath.resolve("src/Own.java"), "class Own {}");
+
+		Files.delete(fromPath.resolve("src/Removed.java"));
+
+		repositoryInventory.refresh(Runnable::run, 1);
+
+		ChangeJournal changeJournal = new ChangeJournal(repoPath);
+
+		result = directorySync.sync(repositoryInventory, fromPath, toPath, manifestPath, changeJournal);
+
+		assertEquals(0, result.getFilesCopied());
+		assertEquals(1, result.getFilesDeleted());
+		assertEquals(1, result.getFilesUnchanged());
+
+		assertFalse(Files.exists(toPath.resolve("src/Removed.java")));
+		assertTrue(Files.exists(toPath.resolve("src/Kept.java")));
+		assertTrue(Files.exists(toPath.resolve("src/Own.java")));
+
+		assertEquals(1, changeJournal.getCount(ChangeJournal.Change.DELETED));
+		assertTrue(changeJournal.getPaths().contains("to/src/Removed.java"), changeJournal.getPaths().toString());
+
+		result = directorySync.sync(repositoryInventory, fromPath, toPath, manifestPath, new ChangeJournal(repoPath));
+
+		assertEquals(0, result.getFilesDeleted());
+	}
+
+	@Test
+	public void testSyncComparesContentWithInventoryHash(@TempDir Path repoPath) throws Exception {
+		Path fromPath = repoPath.resolve("from");
+		Path toPath = repoPath.resolve("to");
+		Path manifestPath = repoPath.resolve("manifests/sync.manifest");
+
+		_write(fromPath.resolve("src/Same.java"), "class Same {}");
+		_write(fromPath.resolve("src/Edited.java"), "class Edited {}");
+
+		RepositoryInventory repositoryInventory = RepositoryInventory.load(
+			repoPath, ExclusionRules.NONE, false,
+			new GeneratedSourceDetector(GeneratedSourceDetector.DEFAULT_MARKERS, 1024), 1024 * 1024);
+
+		repositoryInventory.refresh(Runnable::run, 1);
+
+		DirectorySync directorySync = new DirectorySync(true);
+
+		directorySync.sync(repositoryInventory, fromPath, toPath, manifestPath, new ChangeJournal(repoPath));
+
+		FileTime fileTime = FileTime.fromMillis(0);
+
+		Files.setLastModifiedTime(toPath.resolve("src/Same.java"), fileTime);
+
+		_write(toPath.resolve("src/Edited.java"), "class Edited {}".toUpperCase());
+
+		Files.setLastModifiedTime(toPath.resolve("src/Edited.java"), fileTime);
+
+		DirectorySync.Result result = directorySync.sync(
+			repositoryInventory, fromPath, toPath, manifestPath, new ChangeJournal(repoPath));
+
+		assertEquals(1, result.getFilesCopied());
+		assertEquals(1, result.getFilesUnchanged());
+
+		assertEquals(
+			"class Edited {}", new String(Files.readAllBytes(toPath.resolve("src/Edited.java")), StandardCharsets.UTF_8));
+		assertEquals(
+			Files.getLastModifiedTime(fromPath.resolve("src/Same.java")),
+			Files.getLastModifiedTime(toPath.resolve("src/Same.java")));
+	}
+
+	private void _write(Path path, String content) throws Exception {
+		Files.createDirectories(path.getParent());
+
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
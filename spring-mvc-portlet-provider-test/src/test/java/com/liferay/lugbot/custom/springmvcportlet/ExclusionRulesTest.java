@@ -0,0 +1,45 @@
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.ExclusionRules;
+
+/**
+ * @author Gregory Amerson
+ */
+public class ExclusionRulesTest {
+
+	@Test
+	public void testDefaultPatternsKeepBuildPackages() {
+		ExclusionRules exclusionRules = ExclusionRules.compile(ExclusionRules.DEFAULT_PATTERNS);
+
+		assertTrue(exclusionRules.isExcluded("build", true));
+		assertTrue(exclusionRules.isExcluded("target", true));
+		assertTrue(exclusionRules.isExcluded("modules/foo/node_modules", true));
+
+		assertFalse(exclusionRules.isExcluded("src/main/java/com/acme/build", true));
+		assertFalse(exclusionRules.isExcluded("src/main/java/com/acme/target", true));
+		assertFalse(exclusionRules.isExcluded("build", false));
+	}
+
+	@Test
+	public void testLastMatchWins() {
+		ExclusionRules exclusionRules = ExclusionRules.compile(Arrays.asList("*.log", "!keep.log", "logs/keep.log"));
+
+		assertTrue(exclusionRules.isExcluded("debug.log", false));
+		assertFalse(exclusionRules.isExcluded("keep.log", false));
+		assertTrue(exclusionRules.isExcluded("logs/keep.log", false));
+		assertFalse(exclusionRules.isExcluded("other/keep.log", false));
+
+		exclusionRules = exclusionRules.withPatterns("other", Arrays.asList("*.log"));
+
+		assertTrue(exclusionRules.isExcluded("other/keep.log", false));
+		assertFalse(exclusionRules.isExcluded("keep.log", false));
+	}
+
+}
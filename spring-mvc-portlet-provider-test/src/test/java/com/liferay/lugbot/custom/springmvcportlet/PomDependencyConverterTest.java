@@ -0,0 +1,144 @@
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.DependencyIndex;
+import com.liferay.lugbot.custom.springmvcportlet.helper.PomDependencyConverter;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
+
+/**
+ * @author Gregory Amerson
+ */
+public class PomDependencyConverterTest {
+
+	@Test
+	public void testConvertSamplePom(@TempDir Path tempDir) throws Exception {
+		Path repoPath = ZipFunctions.unzipTestRepo("workspace_springmvcportlet.zip", tempDir).toPath();
+
+		Path pomPath = repoPath.resolve("sample-spring-mvc-portlet/pom.xml");
+
+		Path buildGradlePath = tempDir.resolve("build.gradle");
+
+		String declared = "\tcompileOnly group: \"javax.portlet\", name: \"portlet-api\", version: \"3.0.0\"\n";
+
+		Files.write(buildGradlePath, ("dependencies {\n" + declared + "}\n").getBytes(StandardCharsets.UTF_8));
+
+		PomDependencyConverter pomDependencyConverter = new PomDependencyConverter(
+			DependencyIndex.load("dependency-index.txt"));
+
+		RunSummary runSummary = new RunSummary("test");
+
+		assertTrue(pomDependencyConverter.convert(pomPath, buildGradlePath, runSummary));
+
+		String buildGradle = new String(Files.readAllBytes(buildGradlePath), StandardCharsets.UTF_8);
+
+		assertTrue(
+			buildGradle.startsWith(
+				"dependencies {\n" + declared +
+					"\tcompileOnly group: \"com.liferay.portal\", name: \"com.liferay.portal.kernel\"\n"),
+			buildGradle);
+		assertTrue(buildGradle.endsWith("\n}\n"), buildGradle);
+		assertTrue(
+			buildGradle.contains(
+				"\tcompile group: \"org.springframework\", name: \"spring-webmvc-portlet\", " +
+					"version: \"4.3.22.RELEASE\"\n"),
+			buildGradle);
+		assertFalse(buildGradle.contains("portal-service"), buildGradle);
+		assertFalse(buildGradle.contains("3.0.7.RELEASE"), buildGradle);
+		assertEquals(1, buildGradle.split("name: \"portlet-api\"", -1).length - 1, buildGradle);
+
+		assertEquals(1, runSummary.get("dependencies already declared"));
+		assertEquals(16, runSummary.get("dependencies mapped"));
+
+		byte[] bytes = Files.readAllBytes(buildGradlePath);
+
+		assertFalse(pomDependencyConverter.convert(pomPath, buildGradlePath, new RunSummary("test")));
+		assertArrayEquals(bytes, Files.readAllBytes(buildGradlePath));
+	}
+
+	@Test
+	public void testConvertSkipsBracesInCommentsAndStrings(@TempDir Path tempDir) throws Exception {
+		Path pomPath = _writePom(
+			tempDir, "<dependency><groupId>com.example</groupId><artifactId>example-api</artifactId>",
+			"<version>1.0.0</version></dependency>");
+
+		Path buildGradlePath = tempDir.resolve("build.gradle");
+
+		String buildscript =
+			"buildscript {\n\tdependencies {\n\t\tclasspath 'com.example:plugin:1.0'\n\t}\n\n" +
+				"\trepositories {\n\t\tmaven { url \"https://example.com/{repo}\" }\n\t}\n}\n\n";
+		String dependencies =
+			"dependencies {\n\t// a closing brace } in a comment\n" +
+				"\tcompileOnly group: \"javax.portlet\", name: \"portlet-api\", version: \"3.0.0\"\n" +
+					"\t/* a block comment with {\n\t   and } */\n\tcompile files(\"lib/}weird.jar\")\n";
+		String task = "}\n\ntask hello {\n\tdoLast { println 'dependencies { }' }\n}\n";
+
+		Files.write(buildGradlePath, (buildscript + dependencies + task).getBytes(StandardCharsets.UTF_8));
+
+		PomDependencyConverter pomDependencyConverter = new PomDependencyConverter(
+			DependencyIndex.load("dependency-index.txt"));
+
+		RunSummary runSummary = new RunSummary("test");
+
+		assertTrue(pomDependencyConverter.convert(pomPath, buildGradlePath, runSummary));
+
+		String buildGradle = new String(Files.readAllBytes(buildGradlePath), StandardCharsets.UTF_8);
+
+		assertEquals(
+			buildscript + dependencies +
+				"\tcompile group: \"com.example\", name: \"example-api\", version: \"1.0.0\"\n" + task,
+			buildGradle);
+		assertEquals(1, runSummary.get("dependencies unmapped"));
+	}
+
+	@Test
+	public void testConvertUnresolvedVersion(@TempDir Path tempDir) throws Exception {
+		Path pomPath = _writePom(
+			tempDir, "<dependency><groupId>com.example</groupId><artifactId>example-api</artifactId>",
+			"<version>${example.version}</version></dependency>",
+			"<dependency><groupId>com.example</groupId><artifactId>example-impl</artifactId></dependency>");
+
+		Path buildGradlePath = tempDir.resolve("build.gradle");
+
+		PomDependencyConverter pomDependencyConverter = new PomDependencyConverter(
+			DependencyIndex.load("dependency-index.txt"));
+
+		RunSummary runSummary = new RunSummary("test");
+
+		assertTrue(pomDependencyConverter.convert(pomPath, buildGradlePath, runSummary));
+
+		String buildGradle = new String(Files.readAllBytes(buildGradlePath), StandardCharsets.UTF_8);
+
+		assertEquals(
+			"dependencies {\n" +
+				"\t// compile group: \"com.example\", name: \"example-api\" (version unresolved)\n" +
+					"\t// compile group: \"com.example\", name: \"example-impl\" (version unresolved)\n}\n",
+			buildGradle);
+		assertEquals(2, runSummary.get("dependencies unresolved"));
+
+		assertFalse(pomDependencyConverter.convert(pomPath, buildGradlePath, new RunSummary("test")));
+	}
+
+	private static Path _writePom(Path tempDir, String... dependencies) throws Exception {
+		Path pomPath = tempDir.resolve("pom.xml");
+
+		String pom =
+			"<project><modelVersion>4.0.0</modelVersion><dependencies>" + String.join("", dependencies) +
+				"</dependencies></project>";
+
+		Files.write(pomPath, pom.getBytes(StandardCharsets.UTF_8));
+
+		return pomPath;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.ExclusionRules;
+import com.liferay.lugbot.custom.springmvcportlet.helper.GeneratedSourceDetector;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+
+/**
+ * @author Gregory Amerson
+ */
+public class RepositoryInventoryTest {
+
+	@Test
+	public void testBuildPackageIsScanned(@TempDir Path repoPath) throws Exception {
+		Path modulePath = repoPath.resolve("modules/foo");
+
+		_write(modulePath.resolve("build.gradle"), "apply plugin: 'java'");
+		_write(modulePath.resolve("build/classes/Foo.class"), "");
+		_write(modulePath.resolve("src/main/java/com/acme/build/Foo.java"), "package com.acme.build;");
+		_write(modulePath.resolve("src/main/java/com/acme/target/Bar.java"), "package com.acme.target;");
+		_write(repoPath.resolve("build/tmp/out.txt"), "");
+
+		RepositoryInventory repositoryInventory = RepositoryInventory.load(
+			repoPath, ExclusionRules.compile(ExclusionRules.DEFAULT_PATTERNS), true,
+			new GeneratedSourceDetector(GeneratedSourceDetector.DEFAULT_MARKERS, 1024), 1024 * 1024);
+
+		repositoryInventory.refresh(Runnable::run, 1);
+
+		List<String> relativePaths = repositoryInventory.getEntries(
+			repoPath
+		).stream(
+		).map(
+			RepositoryInventory.Entry::getRelativePath
+		).collect(
+			Collectors.toList()
+		);
+
+		assertEquals(3, relativePaths.size(), relativePaths.toString());
+		assertTrue(relativePaths.contains("modules/foo/src/main/java/com/acme/build/Foo.java"));
+		assertTrue(relativePaths.contains("modules/foo/src/main/java/com/acme/target/Bar.java"));
+
+		assertTrue(repositoryInventory.isExcluded(modulePath.resolve("build/classes/Foo.class")));
+		assertTrue(repositoryInventory.isExcluded(repoPath.resolve("build/tmp/out.txt")));
+		assertFalse(repositoryInventory.isExcluded(modulePath.resolve("src/main/java/com/acme/build/Foo.java")));
+	}
+
+	@Test
+	public void testRevalidateSeesWorkingTreeEdits(@TempDir Path repoPath) throws Exception {
+		Path srcPath = repoPath.resolve("src/main/java/com/acme");
+
+		_write(srcPath.resolve("Deleted.java"), "class Deleted {}");
+		_write(srcPath.resolve("Edited.java"), "class Edited {}");
+		_write(srcPath.resolve("Kept.java"), "class Kept {}");
+
+		RepositoryInventory repositoryInventory = RepositoryInventory.load(
+			repoPath, ExclusionRules.NONE, false,
+			new GeneratedSourceDetector(GeneratedSourceDetector.DEFAULT_MARKERS, 1024), 1024 * 1024);
+
+		assertEquals(3, repositoryInventory.refresh(Runnable::run, 1));
+
+		String hash = repositoryInventory.getEntry(
+			srcPath.resolve("Edited.java")
+		).getHash();
+
+		Files.delete(srcPath.resolve("Deleted.java"));
+
+		_write(srcPath.resolve("Edited.java"), "class Edited { int i; }");
+		_write(srcPath.resolve("Added.java"), "class Added {}");
+		_write(srcPath.resolve("impl/AddedImpl.java"), "class AddedImpl {}");
+
+		assertEquals(3, repositoryInventory.revalidate(Runnable::run, 1));
+
+		List<String> relativePaths = repositoryInventory.getEntries(
+			repoPath
+		).stream(
+		).map(
+			RepositoryInventory.Entry::getRelativePath
+		).collect(
+			Collectors.toList()
+		);
+
+		assertEquals(4, relativePaths.size(), relativePaths.toString());
+		assertFalse(relativePaths.contains("src/main/java/com/acme/Deleted.java"));
+		assertTrue(relativePaths.contains("src/main/java/com/acme/Added.java"));
+		assertTrue(relativePaths.contains("src/main/java/com/acme/impl/AddedImpl.java"));
+
+		assertNotEquals(
+			hash,
+			repositoryInventory.getEntry(
+				srcPath.resolve("Edited.java")
+			).getHash());
+
+		assertEquals(0, repositoryInventory.revalidate(Runnable::run, 1));
+	}
+
+	private void _write(Path path, String content) throws Exception {
+		Files.createDirectories(path.getParent());
+
+		Files.write(path, content.getBytes());
+	}
+
+}
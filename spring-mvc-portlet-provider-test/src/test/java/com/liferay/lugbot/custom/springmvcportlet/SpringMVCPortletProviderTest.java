@@ -1,16 +1,26 @@
 package com.liferay.lugbot.custom.springmvcportlet;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,8 +29,10 @@ import org.osgi.test.common.annotation.InjectService;
 import org.osgi.test.junit5.service.ServiceExtension;
 
 import com.liferay.lugbot.api.LugbotConfig;
+import com.liferay.lugbot.api.ProposalCommentDTO;
 import com.liferay.lugbot.api.ProposalDTO;
 import com.liferay.lugbot.api.UpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.helper.FileFunctions;
 
 /**
  * @author Rafael Oliveira
@@ -28,6 +40,84 @@ import com.liferay.lugbot.api.UpgradeProvider;
 @ExtendWith(ServiceExtension.class)
 public class SpringMVCPortletProviderTest {
 
+	@Test
+	public void testSpringMVCPortletAnalyzeBreakingChanges(@TempDir Path tempDir) throws Exception {
+		tempDir.toFile().mkdirs();
+
+		File repoDir = ZipFunctions.unzipTestRepo("workspace_springmvcportlet.zip", tempDir);
+
+		Path repoPath = repoDir.toPath();
+
+		LugbotConfig lugbotConfig = initLugbot();
+
+		testProvider(
+			springMVCPortletCreateModules, _CREATE_MODULES_UPGRADE_NAMES, "SpringMVCPortletCreateModules", repoPath,
+			lugbotConfig);
+
+		testProvider(
+			springMVCPortletMigrateCode, _MIGRATE_CODE_UPGRADE_NAMES, "SpringMVCPortletMigradeCode", repoPath,
+			lugbotConfig);
+
+		FileFunctions.deleteDirIfExists(repoPath.resolve(".lugbot"));
+		FileFunctions.deleteDirIfExists(repoPath.resolve("7.2/.lugbot"));
+
+		String head = getHead(repoPath);
+		Map<String, String> workingTree = getWorkingTree(repoPath);
+
+		List<String> upgradeNames = springMVCPortletAutoCorrectBreakingChanges.computePossibleUpgrades(
+			repoPath, lugbotConfig);
+
+		assertEquals(_AUTO_CORRECT_UPGRADE_NAMES, upgradeNames);
+
+		Optional<ProposalDTO> upgradeProposal = springMVCPortletAutoCorrectBreakingChanges.provideUpgrade(
+			repoPath, lugbotConfig, "SpringMVCPortletAnalyzeBreakingChanges");
+
+		assertTrue(upgradeProposal.isPresent());
+
+		assertEquals(head, getHead(repoPath));
+		assertEquals(workingTree, getWorkingTree(repoPath));
+
+		assertFalse(Files.exists(repoPath.resolve(".lugbot")));
+		assertFalse(Files.exists(repoPath.resolve("7.2/.lugbot")));
+
+		ProposalDTO proposal = upgradeProposal.get();
+
+		String details = proposal.details;
+
+		int problemsFound = getCount(details, "problems found");
+
+		assertTrue(problemsFound > 0, details);
+		assertTrue(details.contains("| migrator | files | problems |"), details);
+
+		List<ProposalCommentDTO> fileComments = proposal.comments.get("files");
+
+		assertNotNull(fileComments);
+
+		assertEquals(getCount(details, "files with problems"), fileComments.size(), details);
+
+		int problemsListed = 0;
+		boolean themeDisplayListed = false;
+
+		for (ProposalCommentDTO fileComment : fileComments) {
+			Matcher matcher = _breakingChangesPattern.matcher(fileComment.title);
+
+			assertTrue(matcher.matches(), fileComment.title);
+
+			int count = Integer.parseInt(matcher.group(1));
+
+			assertTrue(count > 0, fileComment.title);
+
+			problemsListed += count;
+
+			if (fileComment.path.endsWith("Portlet1ViewController.java")) {
+				themeDisplayListed = true;
+			}
+		}
+
+		assertEquals(problemsFound, problemsListed, details);
+		assertTrue(themeDisplayListed, details);
+	}
+
 	@Test
 	public void testSpringMVCPortletUpgradeFrom62To72(@TempDir Path tempDir) throws Exception {
 		tempDir.toFile().mkdirs();
@@ -38,11 +128,87 @@ public class SpringMVCPortletProviderTest {
 
 		LugbotConfig lugbotConfig = initLugbot();
 
-		testProvider(springMVCPortletCreateModules, "SpringMVCPortletCreateModules", repoPath, lugbotConfig);
+		testProvider(
+			springMVCPortletCreateModules, _CREATE_MODULES_UPGRADE_NAMES, "SpringMVCPortletCreateModules", repoPath,
+			lugbotConfig);
+
+		testProvider(
+			springMVCPortletMigrateCode, _MIGRATE_CODE_UPGRADE_NAMES, "SpringMVCPortletMigradeCode", repoPath,
+			lugbotConfig);
+
+		testProvider(
+			springMVCPortletAutoCorrectBreakingChanges, _AUTO_CORRECT_UPGRADE_NAMES,
+			"SpringMVCPortletAutoCorrectBreakingChanges", repoPath, lugbotConfig);
+	}
+
+	private int getCount(String details, String counter) {
+		Matcher matcher = Pattern.compile(
+			"- " + Pattern.quote(counter) + ": (\\d+)"
+		).matcher(
+			details
+		);
+
+		assertTrue(matcher.find(), details);
+
+		return Integer.parseInt(matcher.group(1));
+	}
+
+	private String getHead(Path repoPath) throws IOException {
+		Path gitPath = repoPath.resolve(".git");
+
+		String head = new String(Files.readAllBytes(gitPath.resolve("HEAD")), StandardCharsets.UTF_8).trim();
+
+		if (!head.startsWith("ref: ")) {
+			return head;
+		}
+
+		String ref = head.substring(5);
+
+		Path refPath = gitPath.resolve(ref);
 
-		testProvider(springMVCPortletMigrateCode, "SpringMVCPortletMigradeCode", repoPath, lugbotConfig);
+		if (Files.exists(refPath)) {
+			return ref + " " + new String(Files.readAllBytes(refPath), StandardCharsets.UTF_8).trim();
+		}
 
-		testProvider(springMVCPortletAutoCorrectBreakingChanges, "SpringMVCPortletAutoCorrectBreakingChanges", repoPath, lugbotConfig);
+		for (String line : Files.readAllLines(gitPath.resolve("packed-refs"), StandardCharsets.UTF_8)) {
+			if (line.endsWith(" " + ref)) {
+				return ref + " " + line.substring(0, line.indexOf(' '));
+			}
+		}
+
+		return head;
+	}
+
+	/**
+	 * Returns the SHA-256 of every file of the repository outside of
+	 * {@code .git}, keyed by relative path.
+	 */
+	private Map<String, String> getWorkingTree(Path repoPath) throws Exception {
+		Map<String, String> workingTree = new TreeMap<>();
+
+		List<Path> paths;
+
+		try (Stream<Path> stream = Files.walk(repoPath)) {
+			paths = stream.filter(
+				path -> !repoPath.relativize(path).startsWith(".git") && Files.isRegularFile(path)
+			).collect(
+				Collectors.toList()
+			);
+		}
+
+		for (Path path : paths) {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+
+			StringBuilder sb = new StringBuilder();
+
+			for (byte b : messageDigest.digest(Files.readAllBytes(path))) {
+				sb.append(String.format("%02x", b));
+			}
+
+			workingTree.put(repoPath.relativize(path).toString(), sb.toString());
+		}
+
+		return workingTree;
 	}
 
 	private LugbotConfig initLugbot() {
@@ -62,22 +228,34 @@ public class SpringMVCPortletProviderTest {
 	}
 
 
-	private void testProvider(UpgradeProvider provider, String providerName, Path repoPath, LugbotConfig lugbotConfig) {
+	private void testProvider(
+		UpgradeProvider provider, List<String> expectedUpgradeNames, String providerName, Path repoPath,
+		LugbotConfig lugbotConfig) {
+
 		assertNotNull(provider);
 
 		List<String> upgradeNames = provider.computePossibleUpgrades(repoPath, lugbotConfig);
 
 		assertNotNull(upgradeNames);
 
-		assertEquals(1, upgradeNames.size());
-
-		assertEquals(providerName, upgradeNames.get(0));
+		assertEquals(expectedUpgradeNames, upgradeNames);
 
 		Optional<ProposalDTO> upgradeProposal = provider.provideUpgrade(repoPath, lugbotConfig, providerName);
 
 		assertTrue(upgradeProposal.isPresent());
 	}
 
+	private static final List<String> _AUTO_CORRECT_UPGRADE_NAMES = Arrays.asList(
+		"SpringMVCPortletAutoCorrectBreakingChanges", "SpringMVCPortletAnalyzeBreakingChanges");
+
+	private static final List<String> _CREATE_MODULES_UPGRADE_NAMES = Collections.singletonList(
+		"SpringMVCPortletCreateModules");
+
+	private static final List<String> _MIGRATE_CODE_UPGRADE_NAMES = Collections.singletonList(
+		"SpringMVCPortletMigradeCode");
+
+	private static final Pattern _breakingChangesPattern = Pattern.compile("(\\d+) breaking changes");
+
 	@InjectService(filter = "(component.name=%s)", filterArguments = "spring-mvc-portlet-create-modules")
 	public UpgradeProvider springMVCPortletCreateModules;
 
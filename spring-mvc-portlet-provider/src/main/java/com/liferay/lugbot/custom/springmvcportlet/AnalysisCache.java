@@ -0,0 +1,445 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.ide.upgrade.plan.core.UpgradeProblem;
+import com.liferay.lugbot.custom.springmvcportlet.helper.StringPool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.osgi.framework.ServiceReference;
+
+/**
+ * On-disk cache of {@code AutoFileMigrator.analyze} results. Entries are
+ * stored per migrator {@code component.name} and keyed by the SHA-256 of the
+ * analyzed file content. Each migrator {@code version} property and bundle
+ * version gets a directory of its own, so a changed migrator starts with an
+ * empty directory while runs still using the previous one keep reading
+ * theirs; the entries left behind age out through eviction. The directory is
+ * remembered per component name and version, so a migrator updated while
+ * the cache is open gets its new directory. A cache opened read-only never
+ * writes, and treats entries of changed migrators as misses.
+ *
+ * <p>
+ * The number and size of the entries are kept in a ledger that is updated
+ * on every put and saved when the run ends, so the cache directory is only
+ * walked once the ledger says the caps are exceeded. Cache hits are
+ * remembered in memory and their modification times, which order the
+ * eviction, are touched once per run instead of on every hit.
+ * </p>
+ *
+ * @author Gregory Amerson
+ */
+public class AnalysisCache {
+
+	public static AnalysisCache open(Path cachePath, long maxSize, int maxEntries) throws IOException {
+		Files.createDirectories(cachePath);
+
+		AnalysisCache analysisCache = new AnalysisCache(cachePath, maxSize, maxEntries, false);
+
+		analysisCache._readLedger();
+
+		return analysisCache;
+	}
+
+	public static AnalysisCache openReadOnly(Path cachePath) {
+		return new AnalysisCache(cachePath, Long.MAX_VALUE, Integer.MAX_VALUE, true);
+	}
+
+	/**
+	 * Touches the entries hit since the last call, saves the ledger and,
+	 * once the cache has grown past its size or entry cap, evicts the least
+	 * recently used entries. Entries another run evicts or replaces at the
+	 * same time are skipped.
+	 */
+	public synchronized void evict() throws IOException {
+		if (_readOnly) {
+			return;
+		}
+
+		_touchHits();
+
+		if ((_size.sum() <= _maxSize) && (_entries.sum() <= _maxEntries)) {
+			_writeLedger();
+
+			return;
+		}
+
+		List<Path> entryPaths = new ArrayList<>();
+		List<BasicFileAttributes> entryAttributes = new ArrayList<>();
+
+		long totalSize = _scan(entryPaths, entryAttributes);
+
+		if ((totalSize > _maxSize) || (entryPaths.size() > _maxEntries)) {
+			List<Integer> indexes = new ArrayList<>(entryPaths.size());
+
+			for (int i = 0; i < entryPaths.size(); i++) {
+				indexes.add(i);
+			}
+
+			indexes.sort(Comparator.comparing(i -> entryAttributes.get(i).lastModifiedTime()));
+
+			long targetSize = _maxSize - (_maxSize / 10);
+			int targetEntries = _maxEntries - (_maxEntries / 10);
+
+			int entries = entryPaths.size();
+
+			for (int i : indexes) {
+				if ((totalSize <= targetSize) && (entries <= targetEntries)) {
+					break;
+				}
+
+				Files.deleteIfExists(entryPaths.get(i));
+
+				totalSize -= entryAttributes.get(i).size();
+				entries--;
+			}
+
+			_setLedger(entries, totalSize);
+		}
+		else {
+			_setLedger(entryPaths.size(), totalSize);
+		}
+
+		_writeLedger();
+	}
+
+	/**
+	 * Returns the cached problems for the given content hash, bound to
+	 * {@code file}, or {@code null} if the migrator has not analyzed this
+	 * content before.
+	 */
+	public List<UpgradeProblem> get(ServiceReference<?> ref, String contentHash, File file) {
+		Path migratorPath = _getMigratorPath(ref);
+
+		if (migratorPath == null) {
+			return null;
+		}
+
+		Path entryPath = migratorPath.resolve(contentHash + _ENTRY_EXTENSION);
+
+		try (DataInputStream dataInputStream = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(entryPath)))) {
+
+			if (dataInputStream.readInt() != _FORMAT_VERSION) {
+				return null;
+			}
+
+			int count = dataInputStream.readInt();
+
+			List<UpgradeProblem> upgradeProblems = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				upgradeProblems.add(UpgradeProblemCodec.read(dataInputStream, file, _stringPool));
+			}
+
+			if (!_readOnly) {
+				_hits.add(entryPath);
+			}
+
+			return upgradeProblems;
+		}
+		catch (IOException ioe) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the hex SHA-256 of the content of {@code path}, read through a
+	 * fixed buffer so the file is never held in memory as a whole.
+	 */
+	public String hash(Path path) throws IOException {
+		MessageDigest messageDigest = _getMessageDigest();
+
+		byte[] buffer = new byte[_BUFFER_SIZE];
+
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			int read;
+
+			while ((read = inputStream.read(buffer)) >= 0) {
+				messageDigest.update(buffer, 0, read);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+
+		for (byte b : messageDigest.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return sb.toString();
+	}
+
+	public void put(ServiceReference<?> ref, String contentHash, List<UpgradeProblem> upgradeProblems)
+		throws IOException {
+
+		if (_readOnly) {
+			return;
+		}
+
+		Path migratorPath = _getMigratorPath(ref);
+
+		Path entryPath = migratorPath.resolve(contentHash + _ENTRY_EXTENSION);
+
+		Path tempPath = Files.createTempFile(migratorPath, contentHash, ".tmp");
+
+		try {
+			try (DataOutputStream dataOutputStream = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+
+				dataOutputStream.writeInt(_FORMAT_VERSION);
+				dataOutputStream.writeInt(upgradeProblems.size());
+
+				for (UpgradeProblem upgradeProblem : upgradeProblems) {
+					UpgradeProblemCodec.write(dataOutputStream, upgradeProblem);
+				}
+			}
+
+			long size = Files.size(tempPath);
+
+			long previousSize = -1;
+
+			try {
+				previousSize = Files.size(entryPath);
+			}
+			catch (NoSuchFileException nsfe) {
+			}
+
+			Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+			if (previousSize < 0) {
+				_entries.increment();
+				_size.add(size);
+			}
+			else {
+				_size.add(size - previousSize);
+			}
+		}
+		finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	private AnalysisCache(Path cachePath, long maxSize, int maxEntries, boolean readOnly) {
+		_cachePath = cachePath;
+		_maxSize = maxSize;
+		_maxEntries = maxEntries;
+		_readOnly = readOnly;
+	}
+
+	private MessageDigest _getMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException(nsae);
+		}
+	}
+
+	private Path _getMigratorPath(ServiceReference<?> ref) {
+		String componentName = String.valueOf(ref.getProperty("component.name"));
+
+		String migratorVersion = ref.getProperty("version") + "_" + ref.getBundle().getVersion();
+
+		return _migratorPaths.computeIfAbsent(
+			componentName + "|" + migratorVersion,
+			key -> {
+				Path migratorPath = _cachePath.resolve(
+					_toFileName(componentName)
+				).resolve(
+					_toFileName(migratorVersion)
+				);
+
+				if (_readOnly) {
+					return Files.isDirectory(migratorPath) ? migratorPath : null;
+				}
+
+				try {
+					Files.createDirectories(migratorPath);
+				}
+				catch (IOException ioe) {
+					throw new IllegalStateException("Unable to prepare analysis cache for " + componentName, ioe);
+				}
+
+				return migratorPath;
+			});
+	}
+
+	/**
+	 * Reads the number and size of the entries from the ledger, walking the
+	 * cache to rebuild it when there is none yet.
+	 */
+	private void _readLedger() throws IOException {
+		Path ledgerPath = _cachePath.resolve(_LEDGER_FILE_NAME);
+
+		try (DataInputStream dataInputStream = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(ledgerPath)))) {
+
+			if (dataInputStream.readInt() == _FORMAT_VERSION) {
+				_setLedger(dataInputStream.readLong(), dataInputStream.readLong());
+
+				return;
+			}
+		}
+		catch (IOException ioe) {
+		}
+
+		List<Path> entryPaths = new ArrayList<>();
+
+		long totalSize = _scan(entryPaths, new ArrayList<>());
+
+		_setLedger(entryPaths.size(), totalSize);
+	}
+
+	/**
+	 * Walks the cache and adds the entries and their attributes to the given
+	 * lists, returning the total size of the entries.
+	 */
+	private long _scan(List<Path> entryPaths, List<BasicFileAttributes> entryAttributes) throws IOException {
+		try (Stream<Path> stream = Files.walk(_cachePath)) {
+			stream.filter(
+				path -> String.valueOf(
+					path.getFileName()
+				).endsWith(
+					_ENTRY_EXTENSION
+				)
+			).forEach(
+				entryPaths::add
+			);
+		}
+
+		long totalSize = 0;
+
+		Iterator<Path> iterator = entryPaths.iterator();
+
+		while (iterator.hasNext()) {
+			BasicFileAttributes attributes;
+
+			try {
+				attributes = Files.readAttributes(iterator.next(), BasicFileAttributes.class);
+			}
+			catch (NoSuchFileException nsfe) {
+				iterator.remove();
+
+				continue;
+			}
+
+			entryAttributes.add(attributes);
+
+			totalSize += attributes.size();
+		}
+
+		return totalSize;
+	}
+
+	private void _setLedger(long entries, long size) {
+		_entries.reset();
+		_entries.add(entries);
+
+		_size.reset();
+		_size.add(size);
+	}
+
+	private String _toFileName(String name) {
+		return name.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	private void _touchHits() throws IOException {
+		FileTime fileTime = FileTime.fromMillis(System.currentTimeMillis());
+
+		Iterator<Path> iterator = _hits.iterator();
+
+		while (iterator.hasNext()) {
+			Path entryPath = iterator.next();
+
+			iterator.remove();
+
+			try {
+				Files.setLastModifiedTime(entryPath, fileTime);
+			}
+			catch (NoSuchFileException nsfe) {
+			}
+		}
+	}
+
+	private void _writeLedger() throws IOException {
+		Path tempPath = Files.createTempFile(_cachePath, _LEDGER_FILE_NAME, ".tmp");
+
+		try {
+			try (DataOutputStream dataOutputStream = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+
+				dataOutputStream.writeInt(_FORMAT_VERSION);
+				dataOutputStream.writeLong(_entries.sum());
+				dataOutputStream.writeLong(_size.sum());
+			}
+
+			Files.move(
+				tempPath, _cachePath.resolve(_LEDGER_FILE_NAME), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	private static final int _BUFFER_SIZE = 64 * 1024;
+
+	private static final String _ENTRY_EXTENSION = ".problems";
+
+	private static final int _FORMAT_VERSION = 1;
+
+	private static final String _LEDGER_FILE_NAME = "ledger";
+
+	private final Path _cachePath;
+	private final LongAdder _entries = new LongAdder();
+	private final Set<Path> _hits = ConcurrentHashMap.newKeySet();
+	private final int _maxEntries;
+	private final long _maxSize;
+	private final ConcurrentMap<String, Path> _migratorPaths = new ConcurrentHashMap<>();
+	private final boolean _readOnly;
+	private final LongAdder _size = new LongAdder();
+	private final StringPool _stringPool = new StringPool();
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.ide.upgrade.problems.core.AutoFileMigrator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+
+/**
+ * Immutable dispatch table from file extension to the migrators that handle
+ * it. A new index is built whenever the set of migrators changes, so looking
+ * up the migrators for a file is a single map lookup.
+ *
+ * @author Gregory Amerson
+ */
+public class AutoFileMigratorIndex {
+
+	public static final AutoFileMigratorIndex EMPTY = new AutoFileMigratorIndex(Collections.emptyMap());
+
+	public AutoFileMigratorIndex(Map<ServiceReference<AutoFileMigrator>, AutoFileMigrator> autoFileMigrators) {
+		Map<ServiceReference<AutoFileMigrator>, AutoFileMigrator> sortedAutoFileMigrators = new TreeMap<>(
+			autoFileMigrators);
+
+		Map<String, List<ServiceReference<AutoFileMigrator>>> extensionRefs = new HashMap<>();
+
+		sortedAutoFileMigrators.keySet(
+		).forEach(
+			ref -> {
+				String fileExtensionsProp = (String)ref.getProperty("file.extensions");
+
+				if (fileExtensionsProp == null) {
+					return;
+				}
+
+				for (String extension : fileExtensionsProp.split(",")) {
+					extensionRefs.computeIfAbsent(
+						extension.trim(), key -> new ArrayList<>()
+					).add(
+						ref
+					);
+				}
+			}
+		);
+
+		extensionRefs.replaceAll((extension, refs) -> Collections.unmodifiableList(refs));
+
+		_autoFileMigrators = Collections.unmodifiableMap(sortedAutoFileMigrators);
+		_extensionRefs = extensionRefs;
+	}
+
+	/**
+	 * Returns an index holding only the migrators whose {@code version}
+	 * range includes the given upgrade version. The index for a version is
+	 * built once and shared by every run against this set of migrators.
+	 */
+	public AutoFileMigratorIndex forVersion(Version upgradeVersion) {
+		return _versionIndexes.computeIfAbsent(upgradeVersion, this::_forVersion);
+	}
+
+	public AutoFileMigrator getAutoFileMigrator(ServiceReference<AutoFileMigrator> ref) {
+		return _autoFileMigrators.get(ref);
+	}
+
+	public List<ServiceReference<AutoFileMigrator>> getRefs(String extension) {
+		return _extensionRefs.getOrDefault(extension, Collections.emptyList());
+	}
+
+	public boolean isEmpty() {
+		return _autoFileMigrators.isEmpty();
+	}
+
+	private AutoFileMigratorIndex _forVersion(Version upgradeVersion) {
+		Map<ServiceReference<AutoFileMigrator>, AutoFileMigrator> autoFileMigrators = new HashMap<>();
+
+		_autoFileMigrators.forEach(
+			(ref, autoFileMigrator) -> {
+				boolean includes = Optional.ofNullable(
+					ref.getProperty("version")
+				).map(
+					Object::toString
+				).map(
+					VersionRange::valueOf
+				).filter(
+					range -> range.includes(upgradeVersion)
+				).isPresent();
+
+				if (includes) {
+					autoFileMigrators.put(ref, autoFileMigrator);
+				}
+			});
+
+		return new AutoFileMigratorIndex(autoFileMigrators);
+	}
+
+	private final Map<ServiceReference<AutoFileMigrator>, AutoFileMigrator> _autoFileMigrators;
+	private final Map<String, List<ServiceReference<AutoFileMigrator>>> _extensionRefs;
+	private final ConcurrentMap<Version, AutoFileMigratorIndex> _versionIndexes = new ConcurrentHashMap<>();
+
+}
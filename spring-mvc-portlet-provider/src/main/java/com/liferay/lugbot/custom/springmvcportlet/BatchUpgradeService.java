@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.lugbot.api.LugbotConfig;
+import com.liferay.lugbot.api.ProposalDTO;
+import com.liferay.lugbot.api.UpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ParallelTasks;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
+
+import java.io.IOException;
+
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.log.Logger;
+
+/**
+ * Runs the upgrade providers of this bundle over many repositories. The
+ * providers run for each repository in service ranking order, the way a
+ * single upgrade runs them, on the shared I/O pool, and at most
+ * {@code batch.parallelism} repositories are upgraded at a time across all
+ * batches. Repositories of one batch share what the providers keep warm
+ * between runs: the decoded module template, the migrator dispatch tables,
+ * the dependency index and, when {@code analysis.cache.dir} is set, the
+ * analysis cache.
+ *
+ * <p>
+ * Only upgrades that commit their changes run by default; the upgrades
+ * listed in {@code batch.excluded.upgrade.names}, the analyze dry run unless
+ * configured otherwise, are left out, and callers can name the upgrades to
+ * run instead. The providers commit onto the branch checked out in each
+ * repository. When {@code batch.branch} is set, that branch is checked out
+ * first, and created from {@code HEAD} when it does not exist yet, so the
+ * commits of a batch never land on the branch a repository was left on.
+ * The branch the commits landed on is part of each result.
+ * </p>
+ *
+ * @author Gregory Amerson
+ */
+@Component(name = "spring-mvc-portlet-batch-upgrade", service = BatchUpgradeService.class)
+public class BatchUpgradeService {
+
+	@Activate
+	public void activate(Map<String, Object> properties) {
+		int parallelism = Optional.ofNullable(
+			properties.get("batch.parallelism")
+		).map(
+			String::valueOf
+		).map(
+			Integer::parseInt
+		).orElse(
+			Runtime.getRuntime().availableProcessors()
+		);
+
+		_parallelism = Math.max(1, parallelism);
+
+		_semaphore = new Semaphore(_parallelism);
+
+		_branchName = Optional.ofNullable(
+			properties.get("batch.branch")
+		).map(
+			String::valueOf
+		).filter(
+			branchName -> !branchName.isEmpty()
+		).orElse(
+			null
+		);
+
+		_excludedUpgradeNames = Optional.ofNullable(
+			properties.get("batch.excluded.upgrade.names")
+		).<Set<String>>map(
+			value -> new HashSet<>(Arrays.asList(String.valueOf(value).split(",")))
+		).orElse(
+			Collections.singleton(_ANALYZE_UPGRADE_NAME)
+		);
+	}
+
+	@Reference(
+		cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC,
+		policyOption = ReferencePolicyOption.GREEDY, target = "(component.name=spring-mvc-portlet-*)",
+		unbind = "removeUpgradeProvider"
+	)
+	public void addUpgradeProvider(ServiceReference<UpgradeProvider> ref, UpgradeProvider upgradeProvider) {
+		synchronized (_upgradeProviders) {
+			_upgradeProviders.put(ref, upgradeProvider);
+
+			_rankedUpgradeProviders = new ArrayList<>(
+				_upgradeProviders.descendingMap(
+				).values());
+		}
+	}
+
+	public void removeUpgradeProvider(ServiceReference<UpgradeProvider> ref, UpgradeProvider upgradeProvider) {
+		synchronized (_upgradeProviders) {
+			_upgradeProviders.remove(ref);
+
+			_rankedUpgradeProviders = new ArrayList<>(
+				_upgradeProviders.descendingMap(
+				).values());
+		}
+	}
+
+	/**
+	 * Upgrades every repository with its configuration and waits until all
+	 * of them are done. A repository that fails does not stop the others.
+	 * Every upgrade a provider offers runs, except the excluded ones.
+	 */
+	public Report upgrade(Map<Path, LugbotConfig> lugbotConfigs) throws InterruptedException {
+		Set<String> excludedUpgradeNames = _excludedUpgradeNames;
+
+		return _upgrade(lugbotConfigs, upgradeName -> !excludedUpgradeNames.contains(upgradeName));
+	}
+
+	/**
+	 * Upgrades every repository like {@link #upgrade(Map)}, running only the
+	 * given upgrades.
+	 */
+	public Report upgrade(Map<Path, LugbotConfig> lugbotConfigs, Collection<String> upgradeNames)
+		throws InterruptedException {
+
+		Set<String> includedUpgradeNames = new HashSet<>(upgradeNames);
+
+		return _upgrade(lugbotConfigs, includedUpgradeNames::contains);
+	}
+
+	public static class RepoResult {
+
+		/**
+		 * Returns the branch the commits of the upgrade landed on, or
+		 * {@code null} when it could not be read.
+		 */
+		public String getBranchName() {
+			return _branchName;
+		}
+
+		public long getDurationMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(_durationNanos);
+		}
+
+		public String getError() {
+			return _error;
+		}
+
+		public List<ProposalDTO> getProposals() {
+			return _proposals;
+		}
+
+		public Path getRepoPath() {
+			return _repoPath;
+		}
+
+		public boolean isSuccess() {
+			return _error == null;
+		}
+
+		private RepoResult(
+			Path repoPath, String branchName, List<ProposalDTO> proposals, long durationNanos, String error) {
+
+			_repoPath = repoPath;
+			_branchName = branchName;
+			_proposals = Collections.unmodifiableList(proposals);
+			_durationNanos = durationNanos;
+			_error = error;
+		}
+
+		private final String _branchName;
+		private final long _durationNanos;
+		private final String _error;
+		private final List<ProposalDTO> _proposals;
+		private final Path _repoPath;
+
+	}
+
+	public static class Report {
+
+		public long getDurationMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(_durationNanos);
+		}
+
+		public List<RepoResult> getRepoResults() {
+			return _repoResults;
+		}
+
+		/**
+		 * Returns the number of repositories upgraded per minute of wall
+		 * clock time.
+		 */
+		public double getThroughput() {
+			if (_durationNanos <= 0) {
+				return 0;
+			}
+
+			return _repoResults.size() * (TimeUnit.MINUTES.toNanos(1) / (double)_durationNanos);
+		}
+
+		public String toMarkdown() {
+			return _runSummary.toMarkdown();
+		}
+
+		private Report(List<RepoResult> repoResults, RunSummary runSummary, long durationNanos) {
+			_repoResults = Collections.unmodifiableList(repoResults);
+			_runSummary = runSummary;
+			_durationNanos = durationNanos;
+		}
+
+		private final long _durationNanos;
+		private final List<RepoResult> _repoResults;
+		private final RunSummary _runSummary;
+
+	}
+
+	/**
+	 * Checks out the configured batch branch, creating it from {@code HEAD}
+	 * when needed, and returns the branch the repository is on.
+	 */
+	private String _checkoutBranch(Path repoPath) throws GitAPIException, IOException {
+		FileRepositoryBuilder fileRepositoryBuilder = new FileRepositoryBuilder();
+
+		fileRepositoryBuilder.findGitDir(repoPath.toFile());
+		fileRepositoryBuilder.setMustExist(true);
+
+		if (fileRepositoryBuilder.getGitDir() == null) {
+			throw new IOException(repoPath + " is not inside a git repository");
+		}
+
+		try (Repository repository = fileRepositoryBuilder.build();
+			Git git = new Git(repository)) {
+
+			if ((_branchName != null) && !_branchName.equals(repository.getBranch())) {
+				git.checkout(
+				).setCreateBranch(
+					repository.findRef(Constants.R_HEADS + _branchName) == null
+				).setName(
+					_branchName
+				).call();
+			}
+
+			return repository.getBranch();
+		}
+	}
+
+	private Report _upgrade(Map<Path, LugbotConfig> lugbotConfigs, Predicate<String> upgradeNamePredicate)
+		throws InterruptedException {
+
+		List<UpgradeProvider> upgradeProviders = _rankedUpgradeProviders;
+
+		List<Callable<RepoResult>> callables = new ArrayList<>(lugbotConfigs.size());
+
+		lugbotConfigs.forEach(
+			(repoPath, lugbotConfig) -> callables.add(
+				() -> {
+					_semaphore.acquire();
+
+					try {
+						return _upgrade(repoPath, lugbotConfig, upgradeProviders, upgradeNamePredicate);
+					}
+					finally {
+						_semaphore.release();
+					}
+				}));
+
+		RunSummary runSummary = new RunSummary("SpringMVCPortletBatchUpgrade");
+
+		List<RepoResult> repoResults = new ArrayList<>(callables.size());
+
+		long start = System.nanoTime();
+
+		try (RunSummary.Phase batchPhase = runSummary.startPhase("batch")) {
+			for (Future<RepoResult> future :
+					ParallelTasks.invokeAll(_upgradeExecutors.getIOExecutorService(), _parallelism, callables)) {
+
+				try {
+					repoResults.add(future.get());
+				}
+				catch (ExecutionException ee) {
+					throw new IllegalStateException(ee.getCause());
+				}
+			}
+		}
+
+		for (RepoResult repoResult : repoResults) {
+			runSummary.getHistogram(
+				"repository"
+			).record(
+				repoResult._durationNanos
+			);
+
+			runSummary.add("proposals", repoResult._proposals.size());
+
+			if (repoResult.isSuccess()) {
+				runSummary.increment("repositories upgraded");
+			}
+			else {
+				runSummary.increment("repositories failed");
+
+				_logger.error("Unable to upgrade {}: {}", repoResult._repoPath, repoResult._error);
+			}
+		}
+
+		Report report = new Report(repoResults, runSummary, System.nanoTime() - start);
+
+		runSummary.add("repositories per hour", Math.round(report.getThroughput() * 60));
+
+		_logger.info(report.toMarkdown());
+
+		return report;
+	}
+
+	private RepoResult _upgrade(
+		Path repoPath, LugbotConfig lugbotConfig, List<UpgradeProvider> upgradeProviders,
+		Predicate<String> upgradeNamePredicate) {
+
+		List<ProposalDTO> proposals = new ArrayList<>();
+
+		long start = System.nanoTime();
+
+		String branchName = null;
+
+		try {
+			branchName = _checkoutBranch(repoPath);
+
+			for (UpgradeProvider upgradeProvider : upgradeProviders) {
+				for (String upgradeName : upgradeProvider.computePossibleUpgrades(repoPath, lugbotConfig)) {
+					if (!upgradeNamePredicate.test(upgradeName)) {
+						continue;
+					}
+
+					upgradeProvider.provideUpgrade(
+						repoPath, lugbotConfig, upgradeName
+					).ifPresent(
+						proposals::add
+					);
+				}
+			}
+
+			return new RepoResult(repoPath, branchName, proposals, System.nanoTime() - start, null);
+		}
+		catch (Exception e) {
+			return new RepoResult(repoPath, branchName, proposals, System.nanoTime() - start, String.valueOf(e));
+		}
+	}
+
+	private static final String _ANALYZE_UPGRADE_NAME = "SpringMVCPortletAnalyzeBreakingChanges";
+
+	private String _branchName;
+	private Set<String> _excludedUpgradeNames;
+
+	@Reference(service = org.osgi.service.log.LoggerFactory.class)
+	private Logger _logger;
+
+	private int _parallelism;
+	private volatile List<UpgradeProvider> _rankedUpgradeProviders = Collections.emptyList();
+	private Semaphore _semaphore;
+
+	@Reference
+	private UpgradeExecutors _upgradeExecutors;
+
+	private final TreeMap<ServiceReference<UpgradeProvider>, UpgradeProvider> _upgradeProviders = new TreeMap<>();
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import java.io.IOException;
+
+import java.nio.file.Path;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+/**
+ * Works out which files of a repository changed since a base commit: the
+ * files changed between the base and {@code HEAD}, plus the files that are
+ * modified, staged or untracked in the working tree. The base is either a
+ * given ref or the most recent commit made with one of the given messages.
+ *
+ * @author Gregory Amerson
+ */
+public class GitChangeScope {
+
+	/**
+	 * Returns the absolute paths of the changed files, deleted files left
+	 * out, or an empty optional when there is no repository or the base
+	 * cannot be resolved.
+	 */
+	public static Optional<Set<Path>> getChangedPaths(Path repoPath, String baseRef, Collection<String> messages)
+		throws GitAPIException, IOException {
+
+		FileRepositoryBuilder fileRepositoryBuilder = new FileRepositoryBuilder();
+
+		fileRepositoryBuilder.findGitDir(repoPath.toFile());
+		fileRepositoryBuilder.setMustExist(true);
+
+		if (fileRepositoryBuilder.getGitDir() == null) {
+			return Optional.empty();
+		}
+
+		try (Repository repository = fileRepositoryBuilder.build();
+			Git git = new Git(repository);
+			RevWalk revWalk = new RevWalk(repository)) {
+
+			ObjectId headId = repository.resolve("HEAD");
+
+			if (headId == null) {
+				return Optional.empty();
+			}
+
+			RevCommit baseCommit = _getBaseCommit(repository, revWalk, headId, baseRef, messages);
+
+			if (baseCommit == null) {
+				return Optional.empty();
+			}
+
+			Path workTreePath = repository.getWorkTree(
+			).toPath(
+			).toAbsolutePath();
+
+			Set<Path> changedPaths = new HashSet<>();
+
+			try (ObjectReader objectReader = repository.newObjectReader()) {
+				CanonicalTreeParser baseTreeParser = new CanonicalTreeParser();
+
+				baseTreeParser.reset(objectReader, baseCommit.getTree());
+
+				CanonicalTreeParser headTreeParser = new CanonicalTreeParser();
+
+				headTreeParser.reset(
+					objectReader,
+					revWalk.parseCommit(
+						headId
+					).getTree());
+
+				List<DiffEntry> diffEntries = git.diff(
+				).setOldTree(
+					baseTreeParser
+				).setNewTree(
+					headTreeParser
+				).setShowNameAndStatusOnly(
+					true
+				).call();
+
+				for (DiffEntry diffEntry : diffEntries) {
+					if (diffEntry.getChangeType() != DiffEntry.ChangeType.DELETE) {
+						changedPaths.add(workTreePath.resolve(diffEntry.getNewPath()));
+					}
+				}
+			}
+
+			Status status = git.status(
+			).call();
+
+			List<Set<String>> statusPaths = Arrays.asList(
+				status.getAdded(), status.getChanged(), status.getConflicting(), status.getModified(),
+				status.getUntracked());
+
+			for (Set<String> paths : statusPaths) {
+				for (String path : paths) {
+					changedPaths.add(workTreePath.resolve(path));
+				}
+			}
+
+			return Optional.of(changedPaths);
+		}
+	}
+
+	/**
+	 * Returns the id of the commit {@code HEAD} points to, or {@code null}
+	 * when there is no repository or no commit yet.
+	 */
+	public static String getHead(Path repoPath) throws IOException {
+		FileRepositoryBuilder fileRepositoryBuilder = new FileRepositoryBuilder();
+
+		fileRepositoryBuilder.findGitDir(repoPath.toFile());
+		fileRepositoryBuilder.setMustExist(true);
+
+		if (fileRepositoryBuilder.getGitDir() == null) {
+			return null;
+		}
+
+		try (Repository repository = fileRepositoryBuilder.build()) {
+			ObjectId headId = repository.resolve("HEAD");
+
+			if (headId == null) {
+				return null;
+			}
+
+			return headId.name();
+		}
+	}
+
+	private static RevCommit _getBaseCommit(
+			Repository repository, RevWalk revWalk, ObjectId headId, String baseRef, Collection<String> messages)
+		throws IOException {
+
+		if ((baseRef != null) && !baseRef.isEmpty()) {
+			ObjectId baseId = repository.resolve(baseRef + "^{commit}");
+
+			if (baseId == null) {
+				return null;
+			}
+
+			return revWalk.parseCommit(baseId);
+		}
+
+		revWalk.markStart(revWalk.parseCommit(headId));
+
+		int count = 0;
+
+		for (RevCommit revCommit : revWalk) {
+			if (messages.contains(
+					revCommit.getShortMessage(
+					).trim())) {
+
+				revWalk.reset();
+
+				return revCommit;
+			}
+
+			if (++count >= _MAX_COMMITS) {
+				break;
+			}
+		}
+
+		revWalk.reset();
+
+		return null;
+	}
+
+	private static final int _MAX_COMMITS = 10000;
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executor for blocking file and git I/O. This is the Java 11
+ * implementation, which always uses a bounded pool of platform threads; the
+ * jar built with {@code -Pjava21.home} carries a Java 21 one that can use
+ * virtual threads.
+ *
+ * @author Gregory Amerson
+ */
+class IOExecutors {
+
+	static ExecutorService newExecutorService(int poolSize, int queueSize, boolean virtualThreads) {
+		return UpgradeExecutors.newThreadPool("lugbot-io-", poolSize, queueSize);
+	}
+
+	static boolean supportsVirtualThreads() {
+		return false;
+	}
+
+}
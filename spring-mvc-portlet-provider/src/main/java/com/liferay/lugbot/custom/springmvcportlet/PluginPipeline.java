@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.lugbot.api.ProposalCommentDTO;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ParallelTasks;
+
+import java.text.MessageFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs one task per plugin on a shared executor, at most {@code parallelism}
+ * at a time. Every plugin gets its own
+ * outcome, so a failing or slow plugin neither stops nor hides the others.
+ *
+ * @author Rafael Oliveira
+ */
+public class PluginPipeline {
+
+	public PluginPipeline(Executor executor, int parallelism) {
+		_executor = executor;
+		_parallelism = Math.max(1, parallelism);
+	}
+
+	public List<Outcome> run(List<String> pluginNames, PluginTask pluginTask) throws InterruptedException {
+		List<Callable<Outcome>> callables = pluginNames.stream(
+		).map(
+			pluginName -> (Callable<Outcome>)() -> _run(pluginName, pluginTask)
+		).collect(
+			Collectors.toList()
+		);
+
+		List<Outcome> outcomes = new ArrayList<>(pluginNames.size());
+
+		for (Future<Outcome> future : ParallelTasks.invokeAll(_executor, _parallelism, callables)) {
+			try {
+				outcomes.add(future.get());
+			}
+			catch (ExecutionException ee) {
+				throw new IllegalStateException(ee.getCause());
+			}
+		}
+
+		return outcomes;
+	}
+
+	public static List<ProposalCommentDTO> toProposalComments(List<Outcome> outcomes) {
+		return outcomes.stream(
+		).map(
+			outcome -> new ProposalCommentDTO(
+				MessageFormat.format(
+					"{0} {1} in {2} ms ({3} bytes)", outcome.getPluginName(),
+					outcome.isSuccess() ? "succeeded" : "failed", outcome.getDurationMillis(), outcome.getBytes()),
+				outcome.isSuccess() ? "" : outcome.getError(), outcome.getPluginName(), 0)
+		).collect(
+			Collectors.toList()
+		);
+	}
+
+	public static class Outcome {
+
+		public long getBytes() {
+			return _bytes;
+		}
+
+		public long getDurationMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(_durationNanos);
+		}
+
+		public String getError() {
+			return _error;
+		}
+
+		public String getPluginName() {
+			return _pluginName;
+		}
+
+		public boolean isSuccess() {
+			return _error == null;
+		}
+
+		private Outcome(String pluginName, long durationNanos, long bytes, String error) {
+			_pluginName = pluginName;
+			_durationNanos = durationNanos;
+			_bytes = bytes;
+			_error = error;
+		}
+
+		private final long _bytes;
+		private final long _durationNanos;
+		private final String _error;
+		private final String _pluginName;
+
+	}
+
+	@FunctionalInterface
+	public interface PluginTask {
+
+		/**
+		 * Processes one plugin and returns the number of bytes it wrote.
+		 */
+		public long run(String pluginName) throws Exception;
+
+	}
+
+	private Outcome _run(String pluginName, PluginTask pluginTask) {
+		long start = System.nanoTime();
+
+		try {
+			long bytes = pluginTask.run(pluginName);
+
+			return new Outcome(pluginName, System.nanoTime() - start, bytes, null);
+		}
+		catch (Exception e) {
+			return new Outcome(pluginName, System.nanoTime() - start, 0, String.valueOf(e));
+		}
+	}
+
+	private final Executor _executor;
+	private final int _parallelism;
+
+}
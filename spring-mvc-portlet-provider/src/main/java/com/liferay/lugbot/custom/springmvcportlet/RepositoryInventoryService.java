@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.lugbot.custom.springmvcportlet.helper.ChangeJournal;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ExclusionRules;
+import com.liferay.lugbot.custom.springmvcportlet.helper.GeneratedSourceDetector;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+
+import java.io.IOException;
+
+import java.nio.file.Path;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Keeps the inventories of the most recently upgraded repositories, so the
+ * providers of one upgrade run share a single scan. The scan leaves out
+ * {@code exclusion.patterns}, build output by default, and what the
+ * {@code .gitignore} files of the repository ignore. An inventory is scanned
+ * again when it was not scanned in this session yet, is older than
+ * {@code inventory.max.age} milliseconds or {@code HEAD} moved without the
+ * providers knowing. Otherwise it is revalidated on every request, so
+ * uncommitted edits to the working tree are seen.
+ *
+ * @author Gregory Amerson
+ */
+@Component(name = "spring-mvc-portlet-repository-inventory", service = RepositoryInventoryService.class)
+public class RepositoryInventoryService {
+
+	@Activate
+	public void activate(Map<String, Object> properties) {
+		_exclusionGitignore = _getProperty(properties, "exclusion.gitignore", Boolean::parseBoolean, true);
+		_exclusionRules = ExclusionRules.compile(
+			_getProperty(
+				properties, "exclusion.patterns", value -> Arrays.asList(value.split(",")),
+				ExclusionRules.DEFAULT_PATTERNS));
+
+		_maxAge = _getProperty(properties, "inventory.max.age", Long::parseLong, 5L * 60 * 1000);
+		_maxHashSize = _getProperty(properties, "inventory.max.hash.size", Long::parseLong, 16L * 1024 * 1024);
+		_maxRepos = _getProperty(properties, "inventory.max.repos", Integer::parseInt, 4);
+		_parallelism = _getProperty(
+			properties, "inventory.parallelism", Integer::parseInt, Runtime.getRuntime().availableProcessors());
+
+		_generatedSourceDetector = new GeneratedSourceDetector(
+			_getProperty(
+				properties, "generated.markers", value -> Arrays.asList(value.split(",")),
+				GeneratedSourceDetector.DEFAULT_MARKERS),
+			_getProperty(
+				properties, "generated.header.size", Integer::parseInt, GeneratedSourceDetector.DEFAULT_HEADER_SIZE));
+	}
+
+	/**
+	 * Returns the inventory of {@code repoPath}, scanning the repository
+	 * first when the inventory is missing or stale and revalidating its files
+	 * otherwise. With {@code persist} set a changed inventory is written to
+	 * its index.
+	 */
+	public RepositoryInventory getInventory(Path repoPath, boolean persist) throws IOException {
+		TrackedInventory trackedInventory = _getTrackedInventory(repoPath);
+
+		synchronized (trackedInventory) {
+			RepositoryInventory repositoryInventory = trackedInventory._repositoryInventory;
+
+			String head = GitChangeScope.getHead(repoPath);
+
+			if (!trackedInventory._refreshed ||
+				((System.currentTimeMillis() - repositoryInventory.getRefreshTime()) > _maxAge) ||
+				!Objects.equals(head, trackedInventory._head)) {
+
+				repositoryInventory.refresh(_upgradeExecutors.getIOExecutorService(), _parallelism);
+
+				trackedInventory._head = head;
+				trackedInventory._refreshed = true;
+			}
+			else {
+				repositoryInventory.revalidate(_upgradeExecutors.getIOExecutorService(), _parallelism);
+			}
+
+			if (persist) {
+				repositoryInventory.save();
+			}
+
+			return repositoryInventory;
+		}
+	}
+
+	/**
+	 * Applies the changes a provider journaled and committed to the inventory
+	 * of {@code repoPath}, if it is kept.
+	 */
+	public void update(Path repoPath, ChangeJournal changeJournal) throws IOException {
+		TrackedInventory trackedInventory;
+
+		synchronized (_trackedInventories) {
+			trackedInventory = _trackedInventories.get(_getKey(repoPath));
+		}
+
+		if (trackedInventory == null) {
+			return;
+		}
+
+		synchronized (trackedInventory) {
+			RepositoryInventory repositoryInventory = trackedInventory._repositoryInventory;
+
+			repositoryInventory.update(changeJournal);
+			repositoryInventory.save();
+
+			trackedInventory._head = GitChangeScope.getHead(repoPath);
+		}
+	}
+
+	private static <T> T _getProperty(
+		Map<String, Object> properties, String key, Function<String, T> function, T defaultValue) {
+
+		return Optional.ofNullable(
+			properties.get(key)
+		).map(
+			String::valueOf
+		).map(
+			function
+		).orElse(
+			defaultValue
+		);
+	}
+
+	private Path _getKey(Path repoPath) {
+		return repoPath.toAbsolutePath(
+		).normalize();
+	}
+
+	private TrackedInventory _getTrackedInventory(Path repoPath) {
+		synchronized (_trackedInventories) {
+			return _trackedInventories.computeIfAbsent(
+				_getKey(repoPath),
+				key -> new TrackedInventory(
+					RepositoryInventory.load(
+						key, _exclusionRules, _exclusionGitignore, _generatedSourceDetector, _maxHashSize)));
+		}
+	}
+
+	private boolean _exclusionGitignore;
+	private ExclusionRules _exclusionRules;
+	private GeneratedSourceDetector _generatedSourceDetector;
+	private long _maxAge;
+	private long _maxHashSize;
+	private int _maxRepos;
+	private int _parallelism;
+
+	private final Map<Path, TrackedInventory> _trackedInventories = new LinkedHashMap<Path, TrackedInventory>(
+		16, 0.75F, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, TrackedInventory> eldest) {
+			return size() > _maxRepos;
+		}
+
+	};
+
+	@Reference
+	private UpgradeExecutors _upgradeExecutors;
+
+	private static class TrackedInventory {
+
+		private TrackedInventory(RepositoryInventory repositoryInventory) {
+			_repositoryInventory = repositoryInventory;
+		}
+
+		private String _head;
+		private boolean _refreshed;
+		private final RepositoryInventory _repositoryInventory;
+
+	}
+
+}
@@ -16,307 +16,1146 @@
 
 package com.liferay.lugbot.custom.springmvcportlet;
 
-import static com.liferay.lugbot.api.util.GitFunctions.commitChanges;
 import static com.liferay.lugbot.api.util.GitFunctions.getCurrentBranchName;
 import static com.liferay.lugbot.api.util.LogFunctions.logError;
 
-import com.liferay.lugbot.custom.springmvcportlet.helper.FileFunctions;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ChangeJournal;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ExclusionRules;
+import com.liferay.lugbot.custom.springmvcportlet.helper.GeneratedSourceDetector;
+import com.liferay.lugbot.custom.springmvcportlet.helper.LugbotWorkDir;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ParallelTasks;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.AnalyzeEvent;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.CorrectEvent;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
 import com.liferay.ide.upgrade.plan.core.UpgradeProblem;
 import com.liferay.ide.upgrade.problems.core.AutoFileMigrator;
 import com.liferay.lugbot.api.LugbotConfig;
 import com.liferay.lugbot.api.ProposalCommentDTO;
 import com.liferay.lugbot.api.ProposalDTO;
 import com.liferay.lugbot.api.UpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgrade;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgradeProvider;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.Paths;
 
 import java.text.MessageFormat;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.Version;
-import org.osgi.framework.VersionRange;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.osgi.service.component.propertytypes.ServiceRanking;
 import org.osgi.service.log.Logger;
+import org.osgi.util.promise.Promise;
 
 /**
  * @author Gregory Amerson
  */
-@Component(name = "spring-mvc-portlet-auto-correct-breaking-changes")
+@Component(
+	name = "spring-mvc-portlet-auto-correct-breaking-changes",
+	service = {AsyncUpgradeProvider.class, UpgradeProvider.class}
+)
 @ServiceRanking(21000)
-public class SpringMVCPortletAutoCorrectBreakingChangesProvider implements UpgradeProvider {
+public class SpringMVCPortletAutoCorrectBreakingChangesProvider implements AsyncUpgradeProvider {
 
 	@Activate
 	public void activate(ComponentContext componentContext) {
 		this.componentContext = componentContext;
+
+		_analysisMaxFileSize = _getProperty("analysis.max.file.size", Long::parseLong, 16L * 1024 * 1024);
+		_analysisMaxProblemsInMemory = _getProperty("analysis.max.problems.in.memory", Integer::parseInt, 100000);
+		_analysisParallelism = _getProperty(
+			"analysis.parallelism", Integer::parseInt, Runtime.getRuntime().availableProcessors());
+
+		_analysisCacheDir = _getProperty("analysis.cache.dir", Paths::get, null);
+		_analysisCacheEnabled = _getProperty("analysis.cache.enabled", Boolean::parseBoolean, true);
+		_analysisCacheMaxEntries = _getProperty("analysis.cache.max.entries", Integer::parseInt, 200000);
+		_analysisCacheMaxSize = _getProperty("analysis.cache.max.size", Long::parseLong, 256L * 1024 * 1024);
+
+		_analysisExclusionRules = ExclusionRules.compile(
+			_getProperty(
+				"analysis.exclusion.patterns", value -> Arrays.asList(value.split(",")),
+				_ANALYSIS_EXCLUSION_PATTERNS));
+
+		_analysisIncremental = _getProperty("analysis.incremental", Boolean::parseBoolean, false);
+		_analysisIncrementalBase = _getProperty("analysis.incremental.base", Function.identity(), null);
+
+		_generatedExtensions = _getProperty(
+			"generated.extensions", value -> new HashSet<>(Arrays.asList(value.split(","))),
+			Collections.singleton("java"));
+
+		_generatedSourceDetector = new GeneratedSourceDetector(
+			_getProperty(
+				"generated.markers", value -> Arrays.asList(value.split(",")),
+				GeneratedSourceDetector.DEFAULT_MARKERS),
+			_getProperty("generated.header.size", Integer::parseInt, GeneratedSourceDetector.DEFAULT_HEADER_SIZE));
+
+		_timeoutFile = _getProperty("timeout.file", Long::parseLong, 0L);
+		_timeoutMigrator = _getProperty("timeout.migrator", Long::parseLong, 0L);
+		_timeoutRun = _getProperty("timeout.run", Long::parseLong, 0L);
+	}
+
+	@Reference(
+		cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC,
+		policyOption = ReferencePolicyOption.GREEDY, unbind = "removeAutoFileMigrator"
+	)
+	public void addAutoFileMigrator(ServiceReference<AutoFileMigrator> ref, AutoFileMigrator autoFileMigrator) {
+		synchronized (_autoFileMigrators) {
+			_autoFileMigrators.put(ref, autoFileMigrator);
+
+			_autoFileMigratorIndex = new AutoFileMigratorIndex(_autoFileMigrators);
+		}
 	}
 
 	@Override
 	public List<String> computePossibleUpgrades(Path repoPath, LugbotConfig lugbotConfig) {
-		return Collections.singletonList("SpringMVCPortletAutoCorrectBreakingChanges");
+		return Arrays.asList(_UPGRADE_NAME, _ANALYZE_UPGRADE_NAME);
 	}
 
 	@Override
 	public Optional<ProposalDTO> provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
-		Path workspacePath = Optional.of(
-			lugbotConfig
-		).filter(
-			config -> config.tasks.upgrade.workspacePath != null
-		).map(
-			config -> repoPath.resolve(config.tasks.upgrade.workspacePath)
-		).orElse(
-			repoPath
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName)
+		).run();
+	}
+
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Executor executor, Promise<?> cancellation) {
+
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName), cancellation
+		).submit(
+			executor
 		);
+	}
 
-		Version currentVersion = new Version(getCurrentVersion(lugbotConfig));
-		Version upgradeVersion = new Version(getUpgradeVersion(lugbotConfig));
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Promise<?> cancellation) {
 
-		try {
-			Collection<ServiceReference<AutoFileMigrator>> serviceReferences = componentContext.getBundleContext().getServiceReferences(
-				AutoFileMigrator.class, null);
-
-			List<ServiceReference<AutoFileMigrator>> refs = serviceReferences.stream(
-			).filter(
-				ref -> {
-
-					return Optional.ofNullable(
-						ref.getProperty("version")
-					).map(
-						Object::toString
-					).map(
-						VersionRange::valueOf
-					).filter(
-						range -> range.includes(upgradeVersion)
-					).isPresent();
+		return provideUpgradeAsync(
+			repoPath, lugbotConfig, upgradeName, _upgradeExecutors.getUpgradeExecutorService(), cancellation);
+	}
+
+	public void removeAutoFileMigrator(ServiceReference<AutoFileMigrator> ref) {
+		synchronized (_autoFileMigrators) {
+			_autoFileMigrators.remove(ref);
+
+			_autoFileMigratorIndex = new AutoFileMigratorIndex(_autoFileMigrators);
+		}
+	}
+
+	/**
+	 * Analyzes the files the repository inventory lists below
+	 * {@code repoPath}, or only the changed ones when {@code changedPaths} is
+	 * present. When {@code readOnly} is set
+	 * nothing is written, and the analysis cache is only read from if a
+	 * previous run left one behind.
+	 */
+	UpgradeProblemCollector getUpgradeProblems(
+		AutoFileMigratorIndex autoFileMigratorIndex, RepositoryInventory repositoryInventory, Path repoPath,
+		Optional<Set<Path>> changedPaths, boolean readOnly, TimeBudget timeBudget, RunSummary runSummary) {
+
+		List<Path> paths;
+
+		try (RunSummary.Phase walkPhase = runSummary.startPhase("walk")) {
+			if (changedPaths.isPresent()) {
+				paths = _getAnalysisPaths(repositoryInventory, repoPath, changedPaths.get());
+			}
+			else {
+				paths = _getAnalysisPaths(repositoryInventory, repoPath);
+			}
+		}
+
+		runSummary.add("files visited", paths.size());
+
+		AnalysisCache analysisCache = null;
+
+		if (_analysisCacheEnabled && readOnly) {
+			Path cachePath = _analysisCacheDir;
+
+			if (cachePath == null) {
+				cachePath = repoPath.resolve(
+					LugbotWorkDir.NAME
+				).resolve(
+					"analysis-cache"
+				);
+			}
+
+			if (Files.isDirectory(cachePath)) {
+				analysisCache = AnalysisCache.openReadOnly(cachePath);
+			}
+		}
+		else if (_analysisCacheEnabled) {
+			try {
+				analysisCache = _getAnalysisCache(repoPath);
+			}
+			catch (IOException e) {
+				logError(_logger, e, "Unable to open analysis cache, analyzing all files.");
+			}
+		}
+
+		UpgradeProblemCollector upgradeProblemCollector = new UpgradeProblemCollector(_analysisMaxProblemsInMemory);
+
+		try (RunSummary.Phase analyzePhase = runSummary.startPhase("analyze")) {
+			_analyzeFiles(
+				autoFileMigratorIndex, repositoryInventory, paths, analysisCache, upgradeProblemCollector, timeBudget,
+				runSummary);
+		}
+		finally {
+			if (analysisCache != null) {
+				try {
+					analysisCache.evict();
 				}
-			).collect(
-				Collectors.toList()
-			);
+				catch (IOException e) {
+					logError(_logger, e, "Unable to evict analysis cache entries.");
+				}
+			}
+		}
 
-			Map<ServiceReference<AutoFileMigrator>, List<UpgradeProblem>> problems = _getUpgradeProblems(
-				refs, workspacePath);
+		runSummary.add("problems spilled", upgradeProblemCollector.getSpilledCount());
 
-			if (!problems.isEmpty()) {
+		return upgradeProblemCollector;
+	}
 
-				Map<String, List<ProposalCommentDTO>> commitedUpgradeProblems = problems.keySet(
-				).stream(
-				).map(
-					ref -> {
-						AutoFileMigrator autoFileMigrator = componentContext.getBundleContext().getService(ref);
+	/**
+	 * Reports the migrator calls that ran out of time, so the files they
+	 * left alone show up as skipped in the proposal.
+	 */
+	private void _addTimeouts(
+		Path repoPath, TimeBudget timeBudget, RunSummary runSummary, Map<String, List<ProposalCommentDTO>> comments) {
 
-						List<UpgradeProblem> upgradeProblems = problems.get(ref);
+		List<TimeBudget.Timeout> timeouts = timeBudget.getTimeouts();
 
-						List<UpgradeProblem> correctedUpgradeProblems = upgradeProblems.stream(
-						).map(
-							upgradeProblem -> {
-								try {
-									int problemsCorrected = autoFileMigrator.correctProblems(
-										upgradeProblem.getResource(), Collections.singleton(upgradeProblem));
+		runSummary.add("calls timed out", timeouts.size());
+		runSummary.add("calls refused (budget spent)", timeBudget.getRefusedCount());
 
-									_logger.info(
-										"\t{} corrected {} problems.", autoFileMigrator.getClass().getSimpleName(),
-										problemsCorrected);
+		if (timeouts.isEmpty()) {
+			return;
+		}
 
-									if (problemsCorrected > 0) {
-										return upgradeProblem;
-									}
-								}
-								catch (Exception e) {
-									logError(
-										_logger, e, "Problem auto correcting file {}", upgradeProblem.getResource());
-								}
+		comments.put(
+			"timeouts",
+			timeouts.stream(
+			).map(
+				timeout -> new ProposalCommentDTO(
+					"skipped (timeout)",
+					MessageFormat.format(
+						"{0} did not finish within {1} ms", timeout.getMigrator(), timeout.getElapsedMillis()),
+					_getRelativePath(repoPath, timeout.getFile()), 0)
+			).collect(
+				Collectors.toList()
+			));
+	}
 
-								return null;
-							}
-						).filter(
-							Objects::nonNull
-						).collect(
-							Collectors.toList()
-						);
+	private Optional<ProposalDTO> _analyzeBreakingChanges(
+		Path repoPath, Path workspacePath, Version currentVersion, Version upgradeVersion) {
 
-						return new AbstractMap.SimpleEntry<>(UUID.randomUUID().toString(), correctedUpgradeProblems);
-					}
-				).filter(
-						Objects::nonNull
-				).map(
-						pair -> _toDTO(pair)
-				).collect(
-						Collectors.toMap(AbstractMap.SimpleEntry::getKey, AbstractMap.SimpleEntry::getValue)
-				);
+		RunSummary runSummary = new RunSummary(_ANALYZE_UPGRADE_NAME);
 
+		RepositoryInventory repositoryInventory = _getRepositoryInventory(repoPath, false, runSummary);
 
-				if (!commitedUpgradeProblems.isEmpty()) {
-					StringBuilder sbDetails = new StringBuilder();
+		if (repositoryInventory == null) {
+			return Optional.empty();
+		}
 
-					commitedUpgradeProblems.entrySet(
-					).forEach(
-						entry -> {
-							String name = entry.getKey();
+		try (TimeBudget timeBudget = new TimeBudget(_timeoutFile, _timeoutMigrator, _timeoutRun);
+			UpgradeProblemCollector problems = getUpgradeProblems(
+				_autoFileMigratorIndex.forVersion(upgradeVersion), repositoryInventory, workspacePath,
+				_getChangedPaths(repoPath, runSummary), true, timeBudget, runSummary)) {
+
+			Map<String, Set<File>> migratorFiles = new TreeMap<>();
+			Map<String, Integer> migratorProblems = new TreeMap<>();
+			Map<File, Map<String, Integer>> fileProblems = new TreeMap<>();
+
+			for (ServiceReference<AutoFileMigrator> ref : problems.getRefs()) {
+				String componentName = getComponentName(ref);
+
+				problems.forEach(
+					ref,
+					(resource, upgradeProblems) -> {
+						migratorFiles.computeIfAbsent(
+							componentName, key -> new HashSet<>()
+						).add(
+							resource
+						);
 
-							List<ProposalCommentDTO> upgradeProblems = entry.getValue();
+						migratorProblems.merge(componentName, upgradeProblems.size(), Integer::sum);
 
-							upgradeProblems.forEach(
-								problem -> {
-									sbDetails.append("- ");
-									sbDetails.append(name);
-								});
-						}
-					);
+						fileProblems.computeIfAbsent(
+							resource, key -> new TreeMap<>()
+						).merge(
+							componentName, upgradeProblems.size(), Integer::sum
+						);
+					});
+			}
 
-					commitChanges(repoPath, "autocorrect breaking changes", Collections.singletonList("."));
+			Map<String, List<ProposalCommentDTO>> comments = new HashMap<>();
 
-					return Optional.of(
-						new ProposalDTO(
-							"SpringMVCPortletAutoCorrectBreakingChanges", "autocorrect breaking changes", "required",
-							MessageFormat.format(
-								"Automatically fixed some breaking changes from Liferay {0} to {1}", currentVersion,
-								upgradeVersion),
-							"", getCurrentBranchName(repoPath), commitedUpgradeProblems));
+			_addTimeouts(repoPath, timeBudget, runSummary, comments);
+
+			runSummary.add("files with problems", fileProblems.size());
+			runSummary.add(
+				"problems found",
+				migratorProblems.values(
+				).stream(
+				).mapToInt(
+					Integer::intValue
+				).sum());
+
+			StringBuilder sb = new StringBuilder(runSummary.toMarkdown());
+
+			sb.append("\n| migrator | files | problems |\n");
+			sb.append("|---|---:|---:|\n");
+
+			migratorProblems.forEach(
+				(componentName, count) -> {
+					sb.append("| ");
+					sb.append(componentName);
+					sb.append(" | ");
+					sb.append(migratorFiles.get(componentName).size());
+					sb.append(" | ");
+					sb.append(count);
+					sb.append(" |\n");
+				});
+
+			String details = sb.toString();
+
+			_logger.info(details);
+
+			List<ProposalCommentDTO> fileComments = fileProblems.entrySet(
+			).stream(
+			).map(
+				entry -> {
+					Map<String, Integer> counts = entry.getValue();
+
+					int count = counts.values(
+					).stream(
+					).mapToInt(
+						Integer::intValue
+					).sum();
+
+					return new ProposalCommentDTO(
+						count + " breaking changes", String.valueOf(counts), _getRelativePath(repoPath, entry.getKey()),
+						0);
 				}
-			}
+			).collect(
+				Collectors.toList()
+			);
+
+			comments.put("files", fileComments);
+
+			return Optional.of(
+				new ProposalDTO(
+					_ANALYZE_UPGRADE_NAME, "analyze breaking changes", "required",
+					MessageFormat.format(
+						"Found breaking changes from Liferay {0} to {1} without changing any file", currentVersion,
+						upgradeVersion),
+					details, getCurrentBranchName(repoPath), comments));
 		}
 		catch (Exception e) {
-			logError(_logger, e, "Unable to get auto correct migrators.");
+			logError(_logger, e, "Unable to analyze breaking changes.");
 		}
 
 		return Optional.empty();
 	}
 
-	private Map<ServiceReference<AutoFileMigrator>, List<UpgradeProblem>> _getUpgradeProblems(
-		List<ServiceReference<AutoFileMigrator>> refs, Path repoPath) {
+	private void _analyzeFile(
+		AutoFileMigratorIndex autoFileMigratorIndex, RepositoryInventory repositoryInventory, int fileIndex,
+		Path path, AnalysisCache analysisCache, UpgradeProblemCollector upgradeProblemCollector,
+		TimeBudget timeBudget, RunSummary runSummary) {
+
+		if (timeBudget.isExpired()) {
+			runSummary.increment("files skipped (timeout)");
 
-		Map<ServiceReference<AutoFileMigrator>, List<UpgradeProblem>> totalUpgradeProblems = new HashMap<>();
+			return;
+		}
 
-		FileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+		File file = path.toFile();
 
-			@Override
-			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-				if (dir.endsWith(".git")) {
-					return FileVisitResult.SKIP_SUBTREE;
-				}
+		String fileName = String.valueOf(path.getFileName());
 
-				if (dir.endsWith("WEB-INF/classes")) {
-					return FileVisitResult.SKIP_SUBTREE;
-				}
+		String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
 
-				if (dir.endsWith("WEB-INF/service")) {
-					return FileVisitResult.SKIP_SUBTREE;
+		List<ServiceReference<AutoFileMigrator>> fileRefs = autoFileMigratorIndex.getRefs(extension);
+
+		if (fileRefs.isEmpty()) {
+			runSummary.increment("files skipped");
+
+			return;
+		}
+
+		boolean generatedExtension = _generatedExtensions.contains(extension);
+
+		RepositoryInventory.Entry entry = repositoryInventory.getEntry(path);
+
+		if ((entry != null) && (entry.getHash() != null)) {
+			_analyzeFile(
+				autoFileMigratorIndex, fileRefs, fileIndex, file, entry.getSize(),
+				(analysisCache != null) ? entry.getHash() : null, generatedExtension && entry.isGenerated(),
+				analysisCache, upgradeProblemCollector, timeBudget, runSummary);
+
+			return;
+		}
+
+		long bytes = file.length();
+
+		String contentHash = null;
+		boolean generated = false;
+
+		if (bytes <= _analysisMaxFileSize) {
+			try {
+				if (analysisCache != null) {
+					contentHash = analysisCache.hash(path);
 				}
 
-				return super.preVisitDirectory(dir, attrs);
+				if (generatedExtension) {
+					generated = _generatedSourceDetector.isGenerated(path);
+				}
+			}
+			catch (IOException e) {
+				logError(_logger, e, "Unable to read file {}", path);
 			}
+		}
 
-			@Override
-			public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-				File file = path.toFile();
+		_analyzeFile(
+			autoFileMigratorIndex, fileRefs, fileIndex, file, bytes, contentHash, generated, analysisCache,
+			upgradeProblemCollector, timeBudget, runSummary);
+	}
+
+	/**
+	 * Runs the migrators of a file that passed the size check, with the
+	 * content facts taken either from the repository inventory or from
+	 * reading the file.
+	 */
+	private void _analyzeFile(
+		AutoFileMigratorIndex autoFileMigratorIndex, List<ServiceReference<AutoFileMigrator>> fileRefs,
+		int fileIndex, File file, long bytes, String contentHash, boolean generated, AnalysisCache analysisCache,
+		UpgradeProblemCollector upgradeProblemCollector, TimeBudget timeBudget, RunSummary runSummary) {
+
+		if (bytes > _analysisMaxFileSize) {
+			runSummary.increment("files skipped (too large)");
+
+			_logger.warn("Skipping file {} larger than {} bytes", file, _analysisMaxFileSize);
+
+			return;
+		}
+
+		if (generated) {
+			runSummary.increment("files skipped (generated)");
+
+			return;
+		}
+
+		runSummary.add("bytes read", bytes);
 
-				if (!file.isFile() || !attrs.isRegularFile() || (attrs.size() == 0)) {
-					return super.visitFile(path, attrs);
+		for (ServiceReference<AutoFileMigrator> ref : fileRefs) {
+			try {
+				String componentName = getComponentName(ref);
+
+				AnalyzeEvent analyzeEvent = new AnalyzeEvent();
+
+				analyzeEvent.begin();
+
+				long start = System.nanoTime();
+
+				List<UpgradeProblem> upgradeProblems = null;
+
+				if (contentHash != null) {
+					upgradeProblems = analysisCache.get(ref, contentHash, file);
 				}
 
-				String fileName = String.valueOf(path.getFileName());
+				boolean cached = upgradeProblems != null;
 
-				String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+				if (upgradeProblems == null) {
+					AutoFileMigrator autoFileMigrator = autoFileMigratorIndex.getAutoFileMigrator(ref);
 
-				if (Objects.equals(".java", extension)) {
-					try (InputStream inputStream = Files.newInputStream(path)) {
-						String content = FileFunctions.read(inputStream);
+					upgradeProblems = timeBudget.call(componentName, file, () -> autoFileMigrator.analyze(file));
 
-						if (content.contains("* @generated")) {
-							return FileVisitResult.CONTINUE;
-						}
-					}
-					catch (IOException e) {
-						logError(_logger, e, "Problem encountered detecting generated java files.");
+					if (contentHash != null) {
+						analysisCache.put(ref, contentHash, upgradeProblems);
 					}
 				}
 
-				refs.stream(
-				).filter(
-					ref -> {
-						String fileExtensionsProp = (String)ref.getProperty("file.extensions");
+				analyzeEvent.end();
 
-						List<String> fileExtensions = Arrays.asList(fileExtensionsProp.split(","));
+				runSummary.getHistogram(
+					"analyze " + componentName
+				).record(
+					System.nanoTime() - start
+				);
 
-						return fileExtensions.contains(extension);
-					}
-				).forEach(
-					ref -> {
-						AutoFileMigrator autoFileMigrator = componentContext.getBundleContext().getService(ref);
+				if (cached) {
+					runSummary.increment("analysis cache hits");
+				}
 
-						List<UpgradeProblem> upgradeProblems = autoFileMigrator.analyze(file);
+				if (analyzeEvent.shouldCommit()) {
+					analyzeEvent.bytes = bytes;
+					analyzeEvent.cached = cached;
+					analyzeEvent.migrator = componentName;
+					analyzeEvent.path = file.getPath();
+					analyzeEvent.problems = upgradeProblems.size();
 
-						if (!upgradeProblems.isEmpty()) {
-							_logger.info(
-								"\t{} found {} breaking change problems for file {}", getComponentName(ref),
-								upgradeProblems.size(), file.toString());
+					analyzeEvent.commit();
+				}
 
-							List<UpgradeProblem> currentUpgradeProblems = totalUpgradeProblems.getOrDefault(
-								ref, new ArrayList<>());
+				if (!upgradeProblems.isEmpty()) {
+					_logger.info(
+						"\t{} found {} breaking change problems for file {}", componentName, upgradeProblems.size(),
+						file.toString());
 
-							currentUpgradeProblems.addAll(upgradeProblems);
+					upgradeProblemCollector.add(ref, fileIndex, file, upgradeProblems);
+				}
+			}
+			catch (TimeoutException te) {
+				_logger.warn("Skipping file {} with {}: {}", file, getComponentName(ref), te.getMessage());
+			}
+			catch (Exception e) {
+				logError(_logger, e, "Problem analyzing file {} with {}", file, getComponentName(ref));
+			}
+		}
+	}
 
-							totalUpgradeProblems.put(ref, currentUpgradeProblems);
-						}
-					}
-				);
+	private void _analyzeFiles(
+		AutoFileMigratorIndex autoFileMigratorIndex, RepositoryInventory repositoryInventory, List<Path> paths,
+		AnalysisCache analysisCache,
+		UpgradeProblemCollector upgradeProblemCollector, TimeBudget timeBudget, RunSummary runSummary) {
 
-				return super.visitFile(path, attrs);
+		if (_analysisParallelism <= 1) {
+			for (int i = 0; i < paths.size(); i++) {
+				_analyzeFile(
+					autoFileMigratorIndex, repositoryInventory, i, paths.get(i), analysisCache,
+					upgradeProblemCollector, timeBudget, runSummary);
 			}
 
-		};
+			return;
+		}
+
+		List<Callable<Void>> callables = new ArrayList<>(paths.size());
+
+		for (int i = 0; i < paths.size(); i++) {
+			int fileIndex = i;
+
+			callables.add(
+				() -> {
+					_analyzeFile(
+						autoFileMigratorIndex, repositoryInventory, fileIndex, paths.get(fileIndex), analysisCache,
+						upgradeProblemCollector, timeBudget, runSummary);
+
+					return null;
+				});
+		}
 
 		try {
-			Files.walkFileTree(repoPath, visitor);
+			ParallelTasks.invokeAllOrFail(_upgradeExecutors.getCPUExecutorService(), _analysisParallelism, callables);
 		}
-		catch (IOException e) {
-			logError(_logger, e, "Failure while walking repo.");
+		catch (ExecutionException e) {
+			logError(_logger, e.getCause(), "Failure while analyzing repo.");
 		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 
-		return totalUpgradeProblems;
+			logError(_logger, e, "Interrupted while analyzing repo.");
+		}
 	}
 
-	private String getComponentName(ServiceReference<?> serviceReference) {
-		return serviceReference.getProperty("component.name").toString();
+	/**
+	 * Applies all problems a migrator found in one file with a single
+	 * correctProblems call and returns the problems that were corrected.
+	 * When that call fails the original content is restored before each
+	 * problem is retried on its own, since the offsets of the problems only
+	 * hold for the content they were found in. Throws a
+	 * {@link TimeoutException} when the file could not be corrected within
+	 * the time budget, after restoring the original content and recording it
+	 * in {@code timedOutContents}, since the abandoned call may still write
+	 * the file.
+	 */
+	private List<UpgradeProblem> _correctProblems(
+			String componentName, AutoFileMigrator autoFileMigrator, File resource,
+			List<UpgradeProblem> upgradeProblems, TimeBudget timeBudget, Map<File, byte[]> timedOutContents,
+			RunSummary runSummary)
+		throws TimeoutException {
+
+		byte[] originalContent;
+
+		try {
+			originalContent = Files.readAllBytes(resource.toPath());
+		}
+		catch (IOException ioe) {
+			logError(_logger, ioe, "Unable to read file {}", resource);
+
+			return Collections.emptyList();
+		}
+
+		CorrectEvent correctEvent = new CorrectEvent();
+
+		correctEvent.begin();
+
+		long start = System.nanoTime();
+
+		int problemsCorrected;
+
+		try {
+			problemsCorrected = timeBudget.call(
+				componentName, resource, () -> autoFileMigrator.correctProblems(resource, upgradeProblems));
+		}
+		catch (TimeoutException te) {
+			_logger.warn("Skipping file {} with {}: {}", resource, componentName, te.getMessage());
+
+			timedOutContents.put(resource, originalContent);
+
+			_restore(resource, originalContent);
+
+			throw te;
+		}
+		catch (Exception e) {
+			logError(
+				_logger, e, "Problem auto correcting file {}, retrying each problem on its own", resource);
+
+			if (!_restore(resource, originalContent)) {
+				return Collections.emptyList();
+			}
+
+			try {
+				return _correctProblemsIndividually(componentName, autoFileMigrator, upgradeProblems, timeBudget);
+			}
+			catch (TimeoutException te) {
+				timedOutContents.put(resource, originalContent);
+
+				_restore(resource, originalContent);
+
+				throw te;
+			}
+		}
+		finally {
+			correctEvent.end();
+
+			runSummary.getHistogram(
+				"correct " + componentName
+			).record(
+				System.nanoTime() - start
+			);
+		}
+
+		runSummary.add("problems corrected", Math.max(0, problemsCorrected));
+
+		if (correctEvent.shouldCommit()) {
+			correctEvent.bytes = resource.length();
+			correctEvent.corrected = problemsCorrected;
+			correctEvent.migrator = componentName;
+			correctEvent.path = resource.getPath();
+			correctEvent.problems = upgradeProblems.size();
+
+			correctEvent.commit();
+		}
+
+		_logger.info(
+			"\t{} corrected {} problems in {}.", autoFileMigrator.getClass().getSimpleName(), problemsCorrected,
+			resource);
+
+		if (problemsCorrected <= 0) {
+			return Collections.emptyList();
+		}
+
+		if (problemsCorrected >= upgradeProblems.size()) {
+			return upgradeProblems;
+		}
+
+		return _getCorrectedProblems(componentName, autoFileMigrator, resource, upgradeProblems, timeBudget);
+	}
+
+	private List<UpgradeProblem> _correctProblemsIndividually(
+			String componentName, AutoFileMigrator autoFileMigrator, List<UpgradeProblem> upgradeProblems,
+			TimeBudget timeBudget)
+		throws TimeoutException {
+
+		List<UpgradeProblem> correctedUpgradeProblems = new ArrayList<>();
+
+		for (UpgradeProblem upgradeProblem : upgradeProblems) {
+			File resource = upgradeProblem.getResource();
+
+			try {
+				int problemsCorrected = timeBudget.call(
+					componentName, resource,
+					() -> autoFileMigrator.correctProblems(resource, Collections.singleton(upgradeProblem)));
+
+				_logger.info(
+					"\t{} corrected {} problems.", autoFileMigrator.getClass().getSimpleName(), problemsCorrected);
+
+				if (problemsCorrected > 0) {
+					correctedUpgradeProblems.add(upgradeProblem);
+				}
+			}
+			catch (TimeoutException te) {
+				_logger.warn("Skipping file {} with {}: {}", resource, componentName, te.getMessage());
+
+				throw te;
+			}
+			catch (Exception e) {
+				logError(_logger, e, "Problem auto correcting file {}", resource);
+			}
+		}
+
+		return correctedUpgradeProblems;
+	}
+
+	/**
+	 * Waits for the abandoned calls on the files that ran out of time and
+	 * writes their content back once more, since those calls may have written
+	 * them after they were first restored. Files whose calls are still running
+	 * after the wait are left out of the commit.
+	 */
+	private void _fenceTimedOutFiles(
+			TimeBudget timeBudget, Map<File, byte[]> timedOutContents, ChangeJournal changeJournal,
+			RunSummary runSummary)
+		throws InterruptedException {
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(_ABANDONED_CALLS_WAIT_MILLIS);
+
+		for (Map.Entry<File, byte[]> entry : timedOutContents.entrySet()) {
+			File resource = entry.getKey();
+
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, deadline - System.nanoTime()));
+
+			if (timeBudget.awaitAbandoned(resource, remainingMillis) && _restore(resource, entry.getValue())) {
+				continue;
+			}
+
+			_logger.warn("Leaving file {} out of the commit, an abandoned call may still write it", resource);
+
+			changeJournal.discard(resource.toPath());
+
+			runSummary.increment("files left out (abandoned call)");
+		}
 	}
 
-	private AbstractMap.SimpleEntry<String, List<ProposalCommentDTO>> _toDTO(AbstractMap.SimpleEntry<String, List<UpgradeProblem>> pair) {
-		List<UpgradeProblem> upgradeProblems = pair.getValue();
+	/**
+	 * Returns the analysis cache of the repository, or the one cache shared
+	 * by all repositories when {@code analysis.cache.dir} is set. Entries
+	 * are keyed by content, so repositories that hold the same files, such
+	 * as those migrated in one batch, reuse each other's results.
+	 */
+	private AnalysisCache _getAnalysisCache(Path repoPath) throws IOException {
+		if (_analysisCacheDir == null) {
+			return AnalysisCache.open(
+				LugbotWorkDir.resolve(repoPath, "analysis-cache"), _analysisCacheMaxSize, _analysisCacheMaxEntries);
+		}
 
-		List<ProposalCommentDTO> dtos = upgradeProblems.stream(
+		synchronized (this) {
+			if (_sharedAnalysisCache == null) {
+				_sharedAnalysisCache = AnalysisCache.open(
+					_analysisCacheDir, _analysisCacheMaxSize, _analysisCacheMaxEntries);
+			}
+
+			return _sharedAnalysisCache;
+		}
+	}
+
+	private List<Path> _getAnalysisPaths(RepositoryInventory repositoryInventory, Path repoPath) {
+		Path absoluteRepoPath = repoPath.toAbsolutePath(
+		).normalize();
+
+		return repositoryInventory.getEntries(
+			repoPath
+		).stream(
+		).filter(
+			entry -> entry.getSize() > 0
 		).map(
-			problem -> {
-				File file = problem.getResource();
+			RepositoryInventory.Entry::getPath
+		).filter(
+			path -> !_isExcludedFromAnalysis(absoluteRepoPath, path)
+		).collect(
+			Collectors.toList()
+		);
+	}
+
+	/**
+	 * Keeps the changed files that lie below {@code repoPath}, that neither
+	 * the repository inventory nor the analysis exclude, and that are
+	 * non-empty regular files.
+	 */
+	private List<Path> _getAnalysisPaths(
+		RepositoryInventory repositoryInventory, Path repoPath, Set<Path> changedPaths) {
 
-				return new ProposalCommentDTO(
-					problem.getTitle(), problem.getHtml(), file.getPath(), problem.getLineNumber());
+		Path absoluteRepoPath = repoPath.toAbsolutePath(
+		).normalize();
+
+		return changedPaths.stream(
+		).map(
+			path -> path.toAbsolutePath(
+			).normalize()
+		).filter(
+			path -> path.startsWith(absoluteRepoPath) && !path.equals(absoluteRepoPath)
+		).filter(
+			path -> !repositoryInventory.isExcluded(path) && !_isExcludedFromAnalysis(absoluteRepoPath, path)
+		).filter(
+			path -> {
+				File file = path.toFile();
+
+				return file.isFile() && (file.length() > 0);
 			}
+		).sorted(
 		).collect(
 			Collectors.toList()
 		);
+	}
+
+	/**
+	 * Returns the files changed since {@code analysis.incremental.base}, or
+	 * since the last auto correct commit when no base is configured. An empty
+	 * optional means the whole workspace has to be analyzed.
+	 */
+	private Optional<Set<Path>> _getChangedPaths(Path repoPath, RunSummary runSummary) {
+		if (!_analysisIncremental) {
+			return Optional.empty();
+		}
+
+		Optional<Set<Path>> changedPaths = Optional.empty();
+
+		try (RunSummary.Phase diffPhase = runSummary.startPhase("diff")) {
+			changedPaths = GitChangeScope.getChangedPaths(
+				repoPath, _analysisIncrementalBase, Collections.singleton(_COMMIT_MESSAGE));
+		}
+		catch (Exception e) {
+			logError(_logger, e, "Unable to compute changed files of {}", repoPath);
+		}
 
-		return new AbstractMap.SimpleEntry<>(pair.getKey(), dtos);
+		if (changedPaths.isPresent()) {
+			runSummary.add("files changed", changedPaths.get().size());
+		}
+		else {
+			_logger.info("No incremental base found for {}, analyzing all files.", repoPath);
+
+			runSummary.increment("full scans");
+		}
+
+		return changedPaths;
+	}
+
+	/**
+	 * Works out which problems of a partially corrected file were fixed by
+	 * analyzing it again. Line numbers move once a file is rewritten, so a
+	 * problem counts as remaining while the new analysis still reports a
+	 * problem with the same title.
+	 */
+	private List<UpgradeProblem> _getCorrectedProblems(
+		String componentName, AutoFileMigrator autoFileMigrator, File resource, List<UpgradeProblem> upgradeProblems,
+		TimeBudget timeBudget) {
+
+		Map<String, Long> remainingTitles;
+
+		try {
+			remainingTitles = timeBudget.call(
+				componentName, resource, () -> autoFileMigrator.analyze(resource)
+			).stream(
+			).collect(
+				Collectors.groupingBy(upgradeProblem -> String.valueOf(upgradeProblem.getTitle()), Collectors.counting())
+			);
+		}
+		catch (Exception e) {
+			logError(_logger, e, "Unable to analyze corrected file {}", resource);
+
+			return Collections.emptyList();
+		}
+
+		List<UpgradeProblem> correctedUpgradeProblems = new ArrayList<>();
+
+		for (UpgradeProblem upgradeProblem : upgradeProblems) {
+			String title = String.valueOf(upgradeProblem.getTitle());
+
+			long remaining = remainingTitles.getOrDefault(title, 0L);
+
+			if (remaining > 0) {
+				remainingTitles.put(title, remaining - 1);
+			}
+			else {
+				correctedUpgradeProblems.add(upgradeProblem);
+			}
+		}
+
+		return correctedUpgradeProblems;
+	}
+
+	private <T> T _getProperty(String key, Function<String, T> function, T defaultValue) {
+		return Optional.ofNullable(
+			componentContext.getProperties().get(key)
+		).map(
+			String::valueOf
+		).map(
+			function
+		).orElse(
+			defaultValue
+		);
+	}
+
+	private String _getRelativePath(Path repoPath, File file) {
+		Path path = file.toPath(
+		).toAbsolutePath();
+
+		Path absoluteRepoPath = repoPath.toAbsolutePath();
+
+		if (path.startsWith(absoluteRepoPath)) {
+			return absoluteRepoPath.relativize(
+				path
+			).toString();
+		}
+
+		return file.getPath();
+	}
+
+	private RepositoryInventory _getRepositoryInventory(Path repoPath, boolean persist, RunSummary runSummary) {
+		try (RunSummary.Phase inventoryPhase = runSummary.startPhase("inventory")) {
+			return _repositoryInventoryService.getInventory(repoPath, persist);
+		}
+		catch (IOException e) {
+			logError(_logger, e, "Unable to take the repository inventory.");
+
+			return null;
+		}
 	}
 
+	/**
+	 * Returns whether {@code analysis.exclusion.patterns} exclude the file or
+	 * one of its parents, relative to {@code repoPath}.
+	 */
+	private boolean _isExcludedFromAnalysis(Path repoPath, Path path) {
+		String relativePath = repoPath.relativize(
+			path
+		).toString(
+		).replace(
+			'\\', '/'
+		);
+
+		for (int index = relativePath.indexOf('/'); index > 0; index = relativePath.indexOf('/', index + 1)) {
+			if (_analysisExclusionRules.isExcluded(relativePath.substring(0, index), true)) {
+				return true;
+			}
+		}
+
+		return _analysisExclusionRules.isExcluded(relativePath, false);
+	}
+
+	private String getComponentName(ServiceReference<?> serviceReference) {
+		return serviceReference.getProperty("component.name").toString();
+	}
+
+	private Optional<ProposalDTO> _provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
+		Path workspacePath = Optional.of(
+			lugbotConfig
+		).filter(
+			config -> config.tasks.upgrade.workspacePath != null
+		).map(
+			config -> repoPath.resolve(config.tasks.upgrade.workspacePath)
+		).orElse(
+			repoPath
+		);
+
+		Version currentVersion = new Version(getCurrentVersion(lugbotConfig));
+		Version upgradeVersion = new Version(getUpgradeVersion(lugbotConfig));
+
+		if (_ANALYZE_UPGRADE_NAME.equals(upgradeName)) {
+			return _analyzeBreakingChanges(repoPath, workspacePath, currentVersion, upgradeVersion);
+		}
+
+		RunSummary runSummary = new RunSummary(_UPGRADE_NAME);
+
+		AutoFileMigratorIndex autoFileMigratorIndex = _autoFileMigratorIndex.forVersion(upgradeVersion);
+
+		RepositoryInventory repositoryInventory = _getRepositoryInventory(repoPath, true, runSummary);
+
+		if (repositoryInventory == null) {
+			return Optional.empty();
+		}
+
+		try (TimeBudget timeBudget = new TimeBudget(_timeoutFile, _timeoutMigrator, _timeoutRun);
+			UpgradeProblemCollector problems = getUpgradeProblems(
+				autoFileMigratorIndex, repositoryInventory, workspacePath, _getChangedPaths(repoPath, runSummary),
+				false, timeBudget, runSummary)) {
+
+			if (!problems.isEmpty()) {
+				ChangeJournal changeJournal = new ChangeJournal(repoPath);
+
+				Map<String, List<ProposalCommentDTO>> commitedUpgradeProblems = new HashMap<>();
+				Map<File, byte[]> timedOutContents = new HashMap<>();
+
+				try (RunSummary.Phase correctPhase = runSummary.startPhase("correct")) {
+					for (ServiceReference<AutoFileMigrator> ref : problems.getRefs()) {
+						AutoFileMigrator autoFileMigrator = autoFileMigratorIndex.getAutoFileMigrator(ref);
+
+						List<ProposalCommentDTO> proposalComments = new ArrayList<>();
+
+						problems.forEach(
+							ref,
+							(resource, upgradeProblems) -> {
+								if (timedOutContents.containsKey(resource)) {
+									runSummary.increment("files skipped (timeout)");
+
+									return;
+								}
+
+								List<UpgradeProblem> correctedProblems;
+
+								try {
+									correctedProblems = _correctProblems(
+										getComponentName(ref), autoFileMigrator, resource, upgradeProblems, timeBudget,
+										timedOutContents, runSummary);
+								}
+								catch (TimeoutException te) {
+									runSummary.increment("files skipped (timeout)");
+
+									return;
+								}
+
+								if (correctedProblems.isEmpty()) {
+									return;
+								}
+
+								changeJournal.modified(resource.toPath());
+
+								for (UpgradeProblem upgradeProblem : correctedProblems) {
+									proposalComments.add(_toDTO(upgradeProblem));
+								}
+							});
+
+						if (!proposalComments.isEmpty()) {
+							commitedUpgradeProblems.put(UUID.randomUUID().toString(), proposalComments);
+						}
+					}
+				}
+
+				_addTimeouts(repoPath, timeBudget, runSummary, commitedUpgradeProblems);
+
+				_fenceTimedOutFiles(timeBudget, timedOutContents, changeJournal, runSummary);
+
+				if (!commitedUpgradeProblems.isEmpty()) {
+					StringBuilder sbDetails = new StringBuilder();
+
+					commitedUpgradeProblems.entrySet(
+					).forEach(
+						entry -> {
+							String name = entry.getKey();
+
+							List<ProposalCommentDTO> upgradeProblems = entry.getValue();
+
+							upgradeProblems.forEach(
+								problem -> {
+									sbDetails.append("- ");
+									sbDetails.append(name);
+								});
+						}
+					);
+
+					try (RunSummary.Phase commitPhase = runSummary.startPhase("commit")) {
+						runSummary.add(
+							"paths committed", changeJournal.commit(_COMMIT_MESSAGE, ChangeJournal.DEFAULT_BATCH_SIZE));
+					}
+
+					_repositoryInventoryService.update(repoPath, changeJournal);
+
+					String details = runSummary.toMarkdown();
+
+					_logger.info(details);
+
+					return Optional.of(
+						new ProposalDTO(
+							_UPGRADE_NAME, "autocorrect breaking changes", "required",
+							MessageFormat.format(
+								"Automatically fixed some breaking changes from Liferay {0} to {1}", currentVersion,
+								upgradeVersion),
+							details, getCurrentBranchName(repoPath), commitedUpgradeProblems));
+				}
+			}
+		}
+		catch (Exception e) {
+			logError(_logger, e, "Unable to get auto correct migrators.");
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Writes back the content a file had before it was corrected, returning
+	 * whether that succeeded.
+	 */
+	private boolean _restore(File resource, byte[] content) {
+		try {
+			Files.write(resource.toPath(), content);
+
+			return true;
+		}
+		catch (IOException ioe) {
+			logError(_logger, ioe, "Unable to restore file {}", resource);
+
+			return false;
+		}
+	}
+
+	private ProposalCommentDTO _toDTO(UpgradeProblem problem) {
+		File file = problem.getResource();
+
+		return new ProposalCommentDTO(problem.getTitle(), problem.getHtml(), file.getPath(), problem.getLineNumber());
+	}
+
+	private static final long _ABANDONED_CALLS_WAIT_MILLIS = 30000;
+
+	private static final List<String> _ANALYSIS_EXCLUSION_PATTERNS = Arrays.asList(
+		"**/WEB-INF/classes/", "**/WEB-INF/service/");
+
+	private static final String _ANALYZE_UPGRADE_NAME = "SpringMVCPortletAnalyzeBreakingChanges";
+
+	private static final String _COMMIT_MESSAGE = "autocorrect breaking changes";
+
+	private static final String _UPGRADE_NAME = "SpringMVCPortletAutoCorrectBreakingChanges";
+
 	@Reference(service = org.osgi.service.log.LoggerFactory.class)
 	private Logger _logger;
 
+	private Path _analysisCacheDir;
+	private boolean _analysisCacheEnabled;
+	private ExclusionRules _analysisExclusionRules;
+	private long _analysisMaxFileSize;
+	private int _analysisMaxProblemsInMemory;
+	private boolean _analysisIncremental;
+	private String _analysisIncrementalBase;
+	private volatile AutoFileMigratorIndex _autoFileMigratorIndex = AutoFileMigratorIndex.EMPTY;
+	private final Map<ServiceReference<AutoFileMigrator>, AutoFileMigrator> _autoFileMigrators = new HashMap<>();
+	private int _analysisCacheMaxEntries;
+	private long _analysisCacheMaxSize;
+	private int _analysisParallelism;
+	private Set<String> _generatedExtensions;
+	private GeneratedSourceDetector _generatedSourceDetector;
+	private long _timeoutFile;
+	private long _timeoutMigrator;
+	private long _timeoutRun;
 	private ComponentContext componentContext;
+	private AnalysisCache _sharedAnalysisCache;
+
+	@Reference
+	private RepositoryInventoryService _repositoryInventoryService;
+
+	@Reference
+	private UpgradeExecutors _upgradeExecutors;
 
 }
@@ -20,27 +20,53 @@ package com.liferay.lugbot.custom.springmvcportlet;
 import com.liferay.lugbot.api.LugbotConfig;
 import com.liferay.lugbot.api.ProposalDTO;
 import com.liferay.lugbot.api.UpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgrade;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ChangeJournal;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
 
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.propertytypes.ServiceRanking;
 import org.osgi.service.log.Logger;
+import org.osgi.util.promise.Promise;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
-import static com.liferay.lugbot.api.util.GitFunctions.commitChanges;
 import static com.liferay.lugbot.api.util.GitFunctions.getCurrentBranchName;
 import static com.liferay.lugbot.api.util.LogFunctions.logError;
 
 /**
  * @author Rafael Oliveira
  */
-@Component(name = "spring-mvc-portlet-create-modules")
+@Component(
+	name = "spring-mvc-portlet-create-modules", service = {AsyncUpgradeProvider.class, UpgradeProvider.class}
+)
 @ServiceRanking(23000)
-public class SpringMVCPortletCreateModulesProvider implements UpgradeProvider {
+public class SpringMVCPortletCreateModulesProvider implements AsyncUpgradeProvider {
+
+	@Activate
+	public void activate(Map<String, Object> properties) throws IOException {
+		_pluginParallelism = Optional.ofNullable(
+			properties.get("plugin.parallelism")
+		).map(
+			String::valueOf
+		).map(
+			Integer::parseInt
+		).orElse(
+			Runtime.getRuntime().availableProcessors()
+		);
+
+		_template = SpringMVCPortletTemplate.load(_TEMPLATE_NAME);
+	}
 
 	@Override
 	public List<String> computePossibleUpgrades(Path repoPath, LugbotConfig lugbotConfig) {
@@ -49,29 +75,115 @@ public class SpringMVCPortletCreateModulesProvider implements UpgradeProvider {
 
 	@Override
 	public Optional<ProposalDTO> provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName)
+		).run();
+	}
+
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Executor executor, Promise<?> cancellation) {
+
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName), cancellation
+		).submit(
+			executor
+		);
+	}
+
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Promise<?> cancellation) {
+
+		return provideUpgradeAsync(
+			repoPath, lugbotConfig, upgradeName, _upgradeExecutors.getUpgradeExecutorService(), cancellation);
+	}
+
+	private Optional<ProposalDTO> _provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
 
 		Path workspacePath = repoPath.resolve(lugbotConfig.tasks.upgrade.workspacePath);
 		Path modulesPath = workspacePath.resolve("modules");
 
 		List<String> pluginNames = lugbotConfig.tasks.upgrade.plugins;
 
-		pluginNames.forEach(pluginName -> {
-			try {
-				_createModules(modulesPath, pluginName);
+		RunSummary runSummary = new RunSummary("SpringMVCPortletCreateModules");
 
-			} catch (Exception e) {
-				e.printStackTrace();
-				logError(_logger, e);
-			}
-		});
+		ChangeJournal changeJournal = new ChangeJournal(repoPath);
+
+		RepositoryInventory repositoryInventory;
+
+		try (RunSummary.Phase inventoryPhase = runSummary.startPhase("inventory")) {
+			repositoryInventory = _repositoryInventoryService.getInventory(repoPath, true);
+		}
+		catch (IOException e) {
+			logError(_logger, e, "Unable to take the repository inventory.");
+
+			return Optional.empty();
+		}
+
+		List<PluginPipeline.Outcome> outcomes;
+
+		try (RunSummary.Phase createPhase = runSummary.startPhase("create modules")) {
+			PluginPipeline pluginPipeline = new PluginPipeline(
+				_upgradeExecutors.getIOExecutorService(), _pluginParallelism);
+
+			outcomes = pluginPipeline.run(
+				pluginNames,
+				pluginName -> {
+					Path modulePath = modulesPath.resolve(pluginName);
+
+					if (!repositoryInventory.getEntries(
+							modulePath
+						).isEmpty()) {
+
+						changeJournal.modified(modulePath);
+					}
+					else {
+						changeJournal.created(modulePath);
+					}
+
+					long bytesWritten = _template.stamp(modulePath);
+
+					runSummary.add("bytes written", bytesWritten);
+
+					runSummary.increment("modules created");
+
+					return bytesWritten;
+				});
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			logError(_logger, e, "Interrupted while creating modules.");
+
+			return Optional.empty();
+		}
+
+		outcomes.stream(
+		).filter(
+			outcome -> !outcome.isSuccess()
+		).forEach(
+			outcome -> _logger.error("Unable to create module {}: {}", outcome.getPluginName(), outcome.getError())
+		);
 
 		try {
-			commitChanges(repoPath, "create spring-mvc modules", Collections.singletonList("."));
+			try (RunSummary.Phase commitPhase = runSummary.startPhase("commit")) {
+				runSummary.add(
+					"paths committed",
+					changeJournal.commit("create spring-mvc modules", ChangeJournal.DEFAULT_BATCH_SIZE));
+			}
+
+			_repositoryInventoryService.update(repoPath, changeJournal);
+
+			String details = runSummary.toMarkdown();
+
+			_logger.info(details);
 
 			return Optional.of(
 				new ProposalDTO(
 					"SpringMVCPortletMigradeCode", "SpringMVCPortlet [Migrate Code]", "required",
-					"SpringMVCPortlet [Migrate Code]", "", getCurrentBranchName(repoPath)));
+					"SpringMVCPortlet [Migrate Code]", details, getCurrentBranchName(repoPath),
+					Collections.singletonMap("plugins", PluginPipeline.toProposalComments(outcomes))));
 		}
 		catch (Exception e) {
 			logError(_logger, e);
@@ -80,16 +192,19 @@ public class SpringMVCPortletCreateModulesProvider implements UpgradeProvider {
 		return Optional.empty();
 	}
 
-	private void _createModules(Path toPath, String moduleName) throws Exception {
-		try {
-			SpringMVCPortletHelper.unzipRepo("spring-mvc-portlet-7.2-standalone-template.zip", toPath, moduleName);
-		}
-		catch (Exception e) {
-			logError(_logger, e);
-		}
-	}
+	private static final String _TEMPLATE_NAME = "spring-mvc-portlet-7.2-standalone-template.zip";
 
 	@Reference(service = org.osgi.service.log.LoggerFactory.class)
 	private Logger _logger;
 
+	private int _pluginParallelism;
+
+	@Reference
+	private RepositoryInventoryService _repositoryInventoryService;
+
+	@Reference
+	private UpgradeExecutors _upgradeExecutors;
+
+	private SpringMVCPortletTemplate _template;
+
 }
@@ -20,31 +20,77 @@ package com.liferay.lugbot.custom.springmvcportlet;
 import com.liferay.lugbot.api.LugbotConfig;
 import com.liferay.lugbot.api.ProposalDTO;
 import com.liferay.lugbot.api.UpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgrade;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ChangeJournal;
+import com.liferay.lugbot.custom.springmvcportlet.helper.DependencyIndex;
+import com.liferay.lugbot.custom.springmvcportlet.helper.DirectorySync;
+import com.liferay.lugbot.custom.springmvcportlet.helper.LugbotWorkDir;
+import com.liferay.lugbot.custom.springmvcportlet.helper.PomDependencyConverter;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
 
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.propertytypes.ServiceRanking;
 import org.osgi.service.log.Logger;
+import org.osgi.util.promise.Promise;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import javax.xml.stream.XMLStreamException;
 
-import static com.liferay.lugbot.api.util.GitFunctions.commitChanges;
 import static com.liferay.lugbot.api.util.GitFunctions.getCurrentBranchName;
 import static com.liferay.lugbot.api.util.LogFunctions.logError;
 
 /**
  * @author Rafael Oliveira
  */
-@Component(name = "spring-mvc-portlet-migrate-code")
+@Component(
+	name = "spring-mvc-portlet-migrate-code", service = {AsyncUpgradeProvider.class, UpgradeProvider.class}
+)
 @ServiceRanking(22000)
-public class SpringMVCPortletMigradeCodeProvider implements UpgradeProvider {
+public class SpringMVCPortletMigradeCodeProvider implements AsyncUpgradeProvider {
+
+	@Activate
+	public void activate(Map<String, Object> properties) throws IOException {
+		Object dependencyIndexFile = properties.get("dependency.index.file");
+
+		if (dependencyIndexFile == null) {
+			_pomDependencyConverter = new PomDependencyConverter(DependencyIndex.load(_DEPENDENCY_INDEX_NAME));
+		}
+		else {
+			_pomDependencyConverter = new PomDependencyConverter(
+				DependencyIndex.load(Paths.get(String.valueOf(dependencyIndexFile))));
+		}
+
+		_syncCompareContent = Boolean.parseBoolean(String.valueOf(properties.get("sync.compare.content")));
+		_syncIncremental = !Objects.equals("false", String.valueOf(properties.get("sync.incremental")));
+
+		_pluginParallelism = Optional.ofNullable(
+			properties.get("plugin.parallelism")
+		).map(
+			String::valueOf
+		).map(
+			Integer::parseInt
+		).orElse(
+			Runtime.getRuntime().availableProcessors()
+		);
+	}
 
 	@Override
 	public List<String> computePossibleUpgrades(Path repoPath, LugbotConfig lugbotConfig) {
@@ -53,6 +99,134 @@ public class SpringMVCPortletMigradeCodeProvider implements UpgradeProvider {
 
 	@Override
 	public Optional<ProposalDTO> provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName)
+		).run();
+	}
+
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Executor executor, Promise<?> cancellation) {
+
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName), cancellation
+		).submit(
+			executor
+		);
+	}
+
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Promise<?> cancellation) {
+
+		return provideUpgradeAsync(
+			repoPath, lugbotConfig, upgradeName, _upgradeExecutors.getUpgradeExecutorService(), cancellation);
+	}
+
+	/**
+	 * Copies the files the repository inventory lists below {@code fromPath}
+	 * into {@code toPath}.
+	 */
+	void copyDirectoryRecursively(
+			RepositoryInventory repositoryInventory, Path fromPath, Path toPath, ChangeJournal changeJournal,
+			RunSummary runSummary)
+		throws IOException {
+
+		if (!Files.isDirectory(fromPath)) {
+			throw new NoSuchFileException(fromPath.toString());
+		}
+
+		changeJournal.createDirectories(toPath);
+
+		Set<Path> toDirPaths = new HashSet<>();
+
+		for (RepositoryInventory.Entry entry : repositoryInventory.getEntries(fromPath)) {
+			Path entryToPath = toPath.resolve(
+				fromPath.relativize(
+					entry.getPath()
+				).toString());
+
+			if (toDirPaths.add(entryToPath.getParent())) {
+				changeJournal.createDirectories(entryToPath.getParent());
+			}
+
+			_migrateCode(entry.getPath(), entryToPath, changeJournal, runSummary);
+		}
+	}
+
+	/**
+	 * Adds the dependencies of a Maven plugin to the build file of its module.
+	 * A failed conversion fails the plugin.
+	 */
+	private void _convertDependencies(
+			Path pomPath, Path buildGradlePath, ChangeJournal changeJournal, RunSummary runSummary)
+		throws IOException {
+
+		if (!Files.exists(pomPath)) {
+			return;
+		}
+
+		boolean exists = Files.exists(buildGradlePath);
+
+		try {
+			if (_pomDependencyConverter.convert(pomPath, buildGradlePath, runSummary)) {
+				if (exists) {
+					changeJournal.modified(buildGradlePath);
+				}
+				else {
+					changeJournal.created(buildGradlePath);
+				}
+
+				runSummary.increment("build files converted");
+			}
+		}
+		catch (IOException | XMLStreamException e) {
+			runSummary.increment("build files failed");
+
+			throw new IOException("Unable to convert " + pomPath + " to " + buildGradlePath, e);
+		}
+	}
+
+	/**
+	 * Returns the sync manifest of a module, kept in the {@code .lugbot}
+	 * directory of the repository and keyed by the path of the module so
+	 * that modules of different workspaces never share one.
+	 */
+	private Path _getManifestPath(Path repoPath, Path modulePath) throws IOException {
+		Path relativePath = repoPath.relativize(
+			modulePath
+		).normalize();
+
+		return LugbotWorkDir.resolve(
+			repoPath, "sync"
+		).resolve(
+			relativePath + ".manifest"
+		);
+	}
+
+	private void _migrateCode(Path fromPath, Path toPath, ChangeJournal changeJournal, RunSummary runSummary) {
+		try {
+			boolean exists = Files.exists(toPath);
+
+			Files.copy(fromPath, toPath, StandardCopyOption.REPLACE_EXISTING);
+
+			if (exists) {
+				changeJournal.modified(toPath);
+			}
+			else {
+				changeJournal.created(toPath);
+			}
+
+			runSummary.increment("files copied");
+			runSummary.add("bytes copied", Files.size(toPath));
+		} catch (Exception e) {
+			runSummary.increment("files failed");
+
+			logError(_logger, e);
+		}
+	}
+
+	private Optional<ProposalDTO> _provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
 
 		Path pluginsSDKPath = repoPath.resolve(lugbotConfig.tasks.upgrade.pluginsSDKPath);
 
@@ -61,23 +235,92 @@ public class SpringMVCPortletMigradeCodeProvider implements UpgradeProvider {
 
 		List<String> pluginNames = lugbotConfig.tasks.upgrade.plugins;
 
-		pluginNames.forEach(pluginName -> {
-			try {
-				Path from = pluginsSDKPath.resolve(pluginName);
-				Path to = modulesPath.resolve(pluginName);
-				_migrateCode(from, to);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		});
+		RunSummary runSummary = new RunSummary("SpringMVCPortletMigradeCode");
+
+		ChangeJournal changeJournal = new ChangeJournal(repoPath);
+
+		RepositoryInventory repositoryInventory;
+
+		try (RunSummary.Phase inventoryPhase = runSummary.startPhase("inventory")) {
+			repositoryInventory = _repositoryInventoryService.getInventory(repoPath, true);
+		}
+		catch (IOException e) {
+			logError(_logger, e, "Unable to take the repository inventory.");
+
+			return Optional.empty();
+		}
+
+		List<PluginPipeline.Outcome> outcomes;
+
+		try (RunSummary.Phase migratePhase = runSummary.startPhase("migrate")) {
+			PluginPipeline pluginPipeline = new PluginPipeline(
+				_upgradeExecutors.getIOExecutorService(), _pluginParallelism);
+
+			outcomes = pluginPipeline.run(
+				pluginNames,
+				pluginName -> {
+					Path from = pluginsSDKPath.resolve(pluginName);
+					Path to = modulesPath.resolve(pluginName);
+
+					RunSummary pluginRunSummary = new RunSummary(pluginName);
+
+					try {
+						if (_syncIncremental) {
+							_syncCode(
+								repositoryInventory, from, to,
+								_getManifestPath(repoPath, to), changeJournal, pluginRunSummary);
+						}
+						else {
+							copyDirectoryRecursively(repositoryInventory, from, to, changeJournal, pluginRunSummary);
+						}
+
+						_convertDependencies(
+							from.resolve("pom.xml"), to.resolve("build.gradle"), changeJournal, pluginRunSummary);
+					}
+					finally {
+						runSummary.addAll(pluginRunSummary);
+					}
+
+					if (pluginRunSummary.get("files failed") > 0) {
+						throw new IOException(pluginRunSummary.get("files failed") + " files could not be copied");
+					}
+
+					return pluginRunSummary.get("bytes copied");
+				});
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			logError(_logger, e, "Interrupted while migrating plugins.");
+
+			return Optional.empty();
+		}
+
+		outcomes.stream(
+		).filter(
+			outcome -> !outcome.isSuccess()
+		).forEach(
+			outcome -> _logger.error("Unable to migrate plugin {}: {}", outcome.getPluginName(), outcome.getError())
+		);
 
 		try {
-			commitChanges(repoPath, "migrate spring-mvc code", Collections.singletonList("."));
+			try (RunSummary.Phase commitPhase = runSummary.startPhase("commit")) {
+				runSummary.add(
+					"paths committed",
+					changeJournal.commit("migrate spring-mvc code", ChangeJournal.DEFAULT_BATCH_SIZE));
+			}
+
+			_repositoryInventoryService.update(repoPath, changeJournal);
+
+			String details = runSummary.toMarkdown();
+
+			_logger.info(details);
 
 			return Optional.of(
 				new ProposalDTO(
 					"SpringMVCPortletMigradeCode", "SpringMVCPortlet [Migrate Code]", "required",
-					"SpringMVCPortlet [Migrate Code]", "", getCurrentBranchName(repoPath)));
+					"SpringMVCPortlet [Migrate Code]", details, getCurrentBranchName(repoPath),
+					Collections.singletonMap("plugins", PluginPipeline.toProposalComments(outcomes))));
 		}
 		catch (Exception e) {
 			logError(_logger, e);
@@ -86,29 +329,38 @@ public class SpringMVCPortletMigradeCodeProvider implements UpgradeProvider {
 		return Optional.empty();
 	}
 
-	private void _migrateCode(Path fromPath, Path toPath) {
-		try {
-			if (fromPath.toFile().isDirectory()) {
-				_copyDirectoryRecursively(fromPath.toFile(), toPath.toFile());
-			} else {
-				Files.copy(fromPath, toPath, StandardCopyOption.REPLACE_EXISTING);
-			}
+	private void _syncCode(
+			RepositoryInventory repositoryInventory, Path fromPath, Path toPath, Path manifestPath,
+			ChangeJournal changeJournal, RunSummary runSummary)
+		throws IOException {
 
-		} catch (Exception e) {
-			logError(_logger, e);
-		}
-	}
+		DirectorySync directorySync = new DirectorySync(_syncCompareContent);
 
-	private void _copyDirectoryRecursively(File fromFile, File toFile) throws IOException {
-		if (!toFile.exists()) {
-			toFile.mkdir();
-		}
-		for (String child : fromFile.list()) {
-			_migrateCode(new File(fromFile, child).toPath(), new File(toFile, child).toPath());
-		}
+		DirectorySync.Result result = directorySync.sync(
+			repositoryInventory, fromPath, toPath, manifestPath, changeJournal);
+
+		runSummary.add("bytes copied", result.getBytesCopied());
+		runSummary.add("bytes saved", result.getBytesSaved());
+		runSummary.add("files copied", result.getFilesCopied());
+		runSummary.add("files deleted", result.getFilesDeleted());
+		runSummary.add("files unchanged", result.getFilesUnchanged());
 	}
 
+	private static final String _DEPENDENCY_INDEX_NAME = "dependency-index.txt";
+
 	@Reference(service = org.osgi.service.log.LoggerFactory.class)
 	private Logger _logger;
 
+	private int _pluginParallelism;
+	private PomDependencyConverter _pomDependencyConverter;
+
+	@Reference
+	private RepositoryInventoryService _repositoryInventoryService;
+
+	@Reference
+	private UpgradeExecutors _upgradeExecutors;
+
+	private boolean _syncCompareContent;
+	private boolean _syncIncremental;
+
 }
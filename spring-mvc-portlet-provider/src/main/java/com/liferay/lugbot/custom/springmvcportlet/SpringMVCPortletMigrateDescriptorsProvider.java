@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.lugbot.api.LugbotConfig;
+import com.liferay.lugbot.api.ProposalDTO;
+import com.liferay.lugbot.api.UpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgrade;
+import com.liferay.lugbot.custom.springmvcportlet.async.AsyncUpgradeProvider;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ChangeJournal;
+import com.liferay.lugbot.custom.springmvcportlet.helper.DescriptorRewriter;
+import com.liferay.lugbot.custom.springmvcportlet.helper.ParallelTasks;
+import com.liferay.lugbot.custom.springmvcportlet.helper.RepositoryInventory;
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.propertytypes.ServiceRanking;
+import org.osgi.service.log.Logger;
+import org.osgi.util.promise.Promise;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static com.liferay.lugbot.api.util.GitFunctions.getCurrentBranchName;
+import static com.liferay.lugbot.api.util.LogFunctions.logError;
+
+/**
+ * Rewrites the {@code portlet.xml}, {@code liferay-portlet.xml},
+ * {@code liferay-display.xml}, {@code web.xml} and Spring portlet context
+ * descriptors of the migrated modules for 7.2. Plugins run on the plugin
+ * pipeline and the descriptors of each plugin are rewritten on the shared CPU
+ * pool, {@code descriptor.parallelism} at a time, so a plugin with hundreds
+ * of portlet contexts does not hold the others back.
+ *
+ * @author Gregory Amerson
+ */
+@Component(
+	name = "spring-mvc-portlet-migrate-descriptors", service = {AsyncUpgradeProvider.class, UpgradeProvider.class}
+)
+@ServiceRanking(21500)
+public class SpringMVCPortletMigrateDescriptorsProvider implements AsyncUpgradeProvider {
+
+	@Activate
+	public void activate(Map<String, Object> properties) {
+		_descriptorParallelism = _getProperty(
+			properties, "descriptor.parallelism", Integer::parseInt, Runtime.getRuntime().availableProcessors());
+		_pluginParallelism = _getProperty(
+			properties, "plugin.parallelism", Integer::parseInt, Runtime.getRuntime().availableProcessors());
+
+		_descriptorRewriter = new DescriptorRewriter(
+			_getProperty(
+				properties, "descriptor.obsolete.listeners", value -> new HashSet<>(Arrays.asList(value.split(","))),
+				DescriptorRewriter.DEFAULT_OBSOLETE_LISTENERS));
+	}
+
+	@Override
+	public List<String> computePossibleUpgrades(Path repoPath, LugbotConfig lugbotConfig) {
+		return Collections.singletonList("SpringMVCPortletMigrateDescriptors");
+	}
+
+	@Override
+	public Optional<ProposalDTO> provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName)
+		).run();
+	}
+
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Executor executor, Promise<?> cancellation) {
+
+		return new AsyncUpgrade<>(
+			() -> _provideUpgrade(repoPath, lugbotConfig, upgradeName), cancellation
+		).submit(
+			executor
+		);
+	}
+
+	@Override
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Promise<?> cancellation) {
+
+		return provideUpgradeAsync(
+			repoPath, lugbotConfig, upgradeName, _upgradeExecutors.getUpgradeExecutorService(), cancellation);
+	}
+
+	private static <T> T _getProperty(
+		Map<String, Object> properties, String key, Function<String, T> function, T defaultValue) {
+
+		return Optional.ofNullable(
+			properties.get(key)
+		).map(
+			String::valueOf
+		).map(
+			function
+		).orElse(
+			defaultValue
+		);
+	}
+
+	private Optional<ProposalDTO> _provideUpgrade(Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
+		Path workspacePath = repoPath.resolve(lugbotConfig.tasks.upgrade.workspacePath);
+		Path modulesPath = workspacePath.resolve("modules");
+
+		List<String> pluginNames = lugbotConfig.tasks.upgrade.plugins;
+
+		RunSummary runSummary = new RunSummary("SpringMVCPortletMigrateDescriptors");
+
+		ChangeJournal changeJournal = new ChangeJournal(repoPath);
+
+		RepositoryInventory repositoryInventory;
+
+		try (RunSummary.Phase inventoryPhase = runSummary.startPhase("inventory")) {
+			repositoryInventory = _repositoryInventoryService.getInventory(repoPath, true);
+		}
+		catch (IOException e) {
+			logError(_logger, e, "Unable to take the repository inventory.");
+
+			return Optional.empty();
+		}
+
+		List<PluginPipeline.Outcome> outcomes;
+
+		try (RunSummary.Phase rewritePhase = runSummary.startPhase("rewrite descriptors")) {
+			PluginPipeline pluginPipeline = new PluginPipeline(
+				_upgradeExecutors.getIOExecutorService(), _pluginParallelism);
+
+			outcomes = pluginPipeline.run(
+				pluginNames,
+				pluginName -> {
+					RunSummary pluginRunSummary = new RunSummary(pluginName);
+
+					try {
+						_rewriteDescriptors(
+							repositoryInventory, modulesPath.resolve(pluginName), changeJournal, pluginRunSummary);
+					}
+					finally {
+						runSummary.addAll(pluginRunSummary);
+					}
+
+					if (pluginRunSummary.get("descriptors failed") > 0) {
+						throw new IOException(
+							pluginRunSummary.get("descriptors failed") + " descriptors could not be rewritten");
+					}
+
+					return pluginRunSummary.get("bytes written");
+				});
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			logError(_logger, e, "Interrupted while rewriting descriptors.");
+
+			return Optional.empty();
+		}
+
+		outcomes.stream(
+		).filter(
+			outcome -> !outcome.isSuccess()
+		).forEach(
+			outcome -> _logger.error(
+				"Unable to rewrite descriptors of {}: {}", outcome.getPluginName(), outcome.getError())
+		);
+
+		try {
+			try (RunSummary.Phase commitPhase = runSummary.startPhase("commit")) {
+				runSummary.add(
+					"paths committed",
+					changeJournal.commit("migrate spring-mvc descriptors", ChangeJournal.DEFAULT_BATCH_SIZE));
+			}
+
+			_repositoryInventoryService.update(repoPath, changeJournal);
+
+			String details = runSummary.toMarkdown();
+
+			_logger.info(details);
+
+			return Optional.of(
+				new ProposalDTO(
+					"SpringMVCPortletMigrateDescriptors", "SpringMVCPortlet [Migrate Descriptors]", "required",
+					"SpringMVCPortlet [Migrate Descriptors]", details, getCurrentBranchName(repoPath),
+					Collections.singletonMap("plugins", PluginPipeline.toProposalComments(outcomes))));
+		}
+		catch (Exception e) {
+			logError(_logger, e);
+		}
+
+		return Optional.empty();
+	}
+
+	private void _rewriteDescriptor(
+		Path path, DescriptorRewriter.Type type, ChangeJournal changeJournal, RunSummary runSummary) {
+
+		try {
+			runSummary.increment("descriptors read");
+
+			if (_descriptorRewriter.rewrite(path, type)) {
+				changeJournal.modified(path);
+
+				runSummary.increment("descriptors rewritten");
+				runSummary.add("bytes written", Files.size(path));
+			}
+		}
+		catch (Exception e) {
+			runSummary.increment("descriptors failed");
+
+			logError(_logger, e, "Unable to rewrite descriptor {}", path);
+		}
+	}
+
+	/**
+	 * Rewrites the descriptors the repository inventory lists below the
+	 * module on the shared CPU pool and waits for them to finish.
+	 */
+	private void _rewriteDescriptors(
+			RepositoryInventory repositoryInventory, Path modulePath, ChangeJournal changeJournal,
+			RunSummary runSummary)
+		throws Exception {
+
+		List<Callable<Void>> callables = new ArrayList<>();
+
+		for (RepositoryInventory.Entry entry : repositoryInventory.getEntries(modulePath)) {
+			Path path = entry.getPath();
+
+			DescriptorRewriter.Type type = DescriptorRewriter.getType(path);
+
+			if (type != null) {
+				callables.add(
+					() -> {
+						_rewriteDescriptor(path, type, changeJournal, runSummary);
+
+						return null;
+					});
+			}
+		}
+
+		try {
+			ParallelTasks.invokeAllOrFail(_upgradeExecutors.getCPUExecutorService(), _descriptorParallelism, callables);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof Exception) {
+				throw (Exception)cause;
+			}
+
+			throw e;
+		}
+	}
+
+	private int _descriptorParallelism;
+	private DescriptorRewriter _descriptorRewriter;
+
+	@Reference(service = org.osgi.service.log.LoggerFactory.class)
+	private Logger _logger;
+
+	private int _pluginParallelism;
+
+	@Reference
+	private RepositoryInventoryService _repositoryInventoryService;
+
+	@Reference
+	private UpgradeExecutors _upgradeExecutors;
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Module template decoded once into memory. Stamping a module writes the
+ * template entries straight to disk without copying or inflating the
+ * archive again.
+ *
+ * @author Rafael Oliveira
+ */
+public class SpringMVCPortletTemplate {
+
+	public static SpringMVCPortletTemplate load(String resourceName) throws IOException {
+		InputStream inputStream = SpringMVCPortletTemplate.class.getResourceAsStream(resourceName);
+
+		if (inputStream == null) {
+			throw new IOException("Unable to find template " + resourceName);
+		}
+
+		Set<String> directoryNames = new TreeSet<>();
+		List<Entry> entries = new ArrayList<>();
+
+		try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(inputStream))) {
+			ZipEntry zipEntry;
+
+			while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+				Path entryPath = Paths.get(
+					zipEntry.getName()
+				).normalize();
+
+				if (entryPath.isAbsolute() || entryPath.startsWith("..")) {
+					throw new IOException("Entry is outside of the target dir: " + zipEntry.getName());
+				}
+
+				if (zipEntry.isDirectory()) {
+					directoryNames.add(entryPath.toString());
+
+					continue;
+				}
+
+				Path parentPath = entryPath.getParent();
+
+				if (parentPath != null) {
+					directoryNames.add(parentPath.toString());
+				}
+
+				entries.add(new Entry(entryPath.toString(), zipInputStream.readAllBytes()));
+			}
+		}
+
+		return new SpringMVCPortletTemplate(new ArrayList<>(directoryNames), entries);
+	}
+
+	public List<String> getDirectoryNames() {
+		return _directoryNames;
+	}
+
+	public int getFileCount() {
+		return _entries.size();
+	}
+
+	/**
+	 * Writes the template into {@code modulePath}, replacing files that are
+	 * already there.
+	 */
+	public long stamp(Path modulePath) throws IOException {
+		Files.createDirectories(modulePath);
+
+		for (String directoryName : _directoryNames) {
+			Files.createDirectories(modulePath.resolve(directoryName));
+		}
+
+		long bytes = 0;
+
+		for (Entry entry : _entries) {
+			Files.write(modulePath.resolve(entry._name), entry._content);
+
+			bytes += entry._content.length;
+		}
+
+		return bytes;
+	}
+
+	private SpringMVCPortletTemplate(List<String> directoryNames, List<Entry> entries) {
+		_directoryNames = Collections.unmodifiableList(directoryNames);
+		_entries = Collections.unmodifiableList(entries);
+	}
+
+	private final List<String> _directoryNames;
+	private final List<Entry> _entries;
+
+	private static class Entry {
+
+		private Entry(String name, byte[] content) {
+			_name = name;
+			_content = content;
+		}
+
+		private final byte[] _content;
+		private final String _name;
+
+	}
+
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import java.io.Closeable;
+import java.io.File;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the time migrator calls may take: each call, all calls of one
+ * migrator together, and the whole run. A call that runs past its deadline
+ * is cancelled and abandoned, and once a budget is spent further calls are
+ * refused. A timeout of zero or less means no limit, and when no budget is
+ * set calls run on the calling thread.
+ *
+ * <p>
+ * Timed calls run on threads the budget owns and creates on demand, never on
+ * the shared pools, so a call starts right away and its deadline counts from
+ * the moment it starts rather than from when it was handed over.
+ * </p>
+ *
+ * <p>
+ * Cancelling a call only interrupts it and migrators do not check for
+ * interrupts, so an abandoned call may keep writing its file. Callers that
+ * change files must {@link #awaitAbandoned(File, long) wait} for those calls
+ * before they use the file again.
+ * </p>
+ *
+ * @author Gregory Amerson
+ */
+public class TimeBudget implements Closeable {
+
+	public TimeBudget(long callTimeoutMillis, long migratorTimeoutMillis, long runTimeoutMillis) {
+		_callTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(callTimeoutMillis);
+		_migratorTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(migratorTimeoutMillis);
+		_runTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(runTimeoutMillis);
+
+		_start = System.nanoTime();
+	}
+
+	/**
+	 * Waits at most {@code timeoutMillis} until the abandoned calls on
+	 * {@code file} have returned. Returns whether none of them is still
+	 * running.
+	 */
+	public boolean awaitAbandoned(File file, long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for (Timeout timeout : _timeouts) {
+			if (!file.equals(timeout._file)) {
+				continue;
+			}
+
+			long remainingNanos = Math.max(0, deadline - System.nanoTime());
+
+			if (!timeout._doneLatch.await(remainingNanos, TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Runs {@code callable} for {@code migrator} on {@code file} within the
+	 * remaining budgets. Throws a {@link TimeoutException} when the call ran
+	 * out of time or a budget was already spent.
+	 */
+	public <T> T call(String migrator, File file, Callable<T> callable) throws Exception {
+		long timeoutNanos = _getRemainingNanos(migrator);
+
+		if (timeoutNanos <= 0) {
+			_refused.increment();
+
+			throw new TimeoutException("Time budget of " + migrator + " is spent");
+		}
+
+		long start = System.nanoTime();
+
+		try {
+			if (timeoutNanos == Long.MAX_VALUE) {
+				return callable.call();
+			}
+
+			CountDownLatch doneLatch = new CountDownLatch(1);
+			CountDownLatch startLatch = new CountDownLatch(1);
+
+			Future<T> future = _getExecutorService().submit(
+				() -> {
+					startLatch.countDown();
+
+					try {
+						return callable.call();
+					}
+					finally {
+						doneLatch.countDown();
+					}
+				});
+
+			try {
+				startLatch.await();
+			}
+			catch (InterruptedException ie) {
+				future.cancel(true);
+
+				throw ie;
+			}
+
+			start = System.nanoTime();
+
+			try {
+				return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			}
+			catch (ExecutionException ee) {
+				Throwable cause = ee.getCause();
+
+				if (cause instanceof Exception) {
+					throw (Exception)cause;
+				}
+
+				throw ee;
+			}
+			catch (TimeoutException te) {
+				future.cancel(true);
+
+				long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+				_timeouts.add(new Timeout(migrator, file, elapsedMillis, doneLatch));
+
+				throw new TimeoutException(migrator + " did not finish within " + elapsedMillis + " ms");
+			}
+		}
+		finally {
+			if (_migratorTimeoutNanos > 0) {
+				_getSpentNanos(
+					migrator
+				).add(
+					System.nanoTime() - start
+				);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (_executorService != null) {
+				_executorService.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of calls refused because a budget was spent.
+	 */
+	public int getRefusedCount() {
+		return _refused.intValue();
+	}
+
+	/**
+	 * Returns the calls that were abandoned when they ran out of time.
+	 */
+	public List<Timeout> getTimeouts() {
+		return new ArrayList<>(_timeouts);
+	}
+
+	public boolean isExpired() {
+		if ((_runTimeoutNanos > 0) && ((System.nanoTime() - _start) >= _runTimeoutNanos)) {
+			return true;
+		}
+
+		return false;
+	}
+
+	public static class Timeout {
+
+		public long getElapsedMillis() {
+			return _elapsedMillis;
+		}
+
+		public File getFile() {
+			return _file;
+		}
+
+		public String getMigrator() {
+			return _migrator;
+		}
+
+		/**
+		 * Returns whether the abandoned call has not returned yet.
+		 */
+		public boolean isRunning() {
+			if (_doneLatch.getCount() > 0) {
+				return true;
+			}
+
+			return false;
+		}
+
+		private Timeout(String migrator, File file, long elapsedMillis, CountDownLatch doneLatch) {
+			_migrator = migrator;
+			_file = file;
+			_elapsedMillis = elapsedMillis;
+			_doneLatch = doneLatch;
+		}
+
+		private final CountDownLatch _doneLatch;
+		private final long _elapsedMillis;
+		private final File _file;
+		private final String _migrator;
+
+	}
+
+	private synchronized ExecutorService _getExecutorService() {
+		if (_executorService == null) {
+			_executorService = Executors.newCachedThreadPool(
+				runnable -> {
+					Thread thread = new Thread(runnable, "lugbot-time-budget-" + _threadCount.incrementAndGet());
+
+					thread.setDaemon(true);
+
+					return thread;
+				});
+		}
+
+		return _executorService;
+	}
+
+	private long _getRemainingNanos(String migrator) {
+		long remainingNanos = Long.MAX_VALUE;
+
+		if (_callTimeoutNanos > 0) {
+			remainingNanos = _callTimeoutNanos;
+		}
+
+		if (_migratorTimeoutNanos > 0) {
+			remainingNanos = Math.min(
+				remainingNanos,
+				_migratorTimeoutNanos -
+					_getSpentNanos(
+						migrator
+					).sum());
+		}
+
+		if (_runTimeoutNanos > 0) {
+			remainingNanos = Math.min(remainingNanos, _runTimeoutNanos - (System.nanoTime() - _start));
+		}
+
+		return remainingNanos;
+	}
+
+	private LongAdder _getSpentNanos(String migrator) {
+		return _spentNanos.computeIfAbsent(migrator, key -> new LongAdder());
+	}
+
+	private final long _callTimeoutNanos;
+	private ExecutorService _executorService;
+	private final long _migratorTimeoutNanos;
+	private final LongAdder _refused = new LongAdder();
+	private final long _runTimeoutNanos;
+	private final Map<String, LongAdder> _spentNanos = new ConcurrentHashMap<>();
+	private final long _start;
+	private final AtomicInteger _threadCount = new AtomicInteger();
+	private final ConcurrentLinkedQueue<Timeout> _timeouts = new ConcurrentLinkedQueue<>();
+
+}
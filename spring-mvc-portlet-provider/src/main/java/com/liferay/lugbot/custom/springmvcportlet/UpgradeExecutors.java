@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.metatype.annotations.Designate;
+
+/**
+ * Owns the thread pools all providers of this bundle run their work on: a
+ * CPU pool for parsing and analysis, sized to the processors, and an I/O
+ * pool for file and git work that blocks, plus a pool the asynchronous
+ * upgrades themselves run on. All of them queue at most a bounded number of
+ * tasks. When the bundle was built with its Java 21 variant and
+ * runs on Java 21 or later, the I/O pool runs each task on a virtual thread
+ * unless {@code io.virtual.threads} is {@code false}.
+ *
+ * <p>
+ * Callers run their tasks through {@link
+ * com.liferay.lugbot.custom.springmvcportlet.helper.ParallelTasks}, which
+ * lets the calling thread take part and so never waits on a full pool.
+ * </p>
+ *
+ * @author Gregory Amerson
+ */
+@Component(name = "spring-mvc-portlet-upgrade-executors", service = UpgradeExecutors.class)
+@Designate(ocd = UpgradeExecutorsConfiguration.class)
+public class UpgradeExecutors {
+
+	@Activate
+	public void activate(Map<String, Object> properties) {
+		int processors = Runtime.getRuntime(
+		).availableProcessors();
+
+		int cpuPoolSize = _getProperty(properties, "cpu.pool.size", Integer::parseInt, 0);
+		int ioPoolSize = _getProperty(properties, "io.pool.size", Integer::parseInt, 0);
+		int upgradePoolSize = _getProperty(properties, "upgrade.pool.size", Integer::parseInt, 0);
+
+		_cpuExecutorService = newThreadPool(
+			"lugbot-cpu-", (cpuPoolSize > 0) ? cpuPoolSize : processors,
+			_getProperty(properties, "cpu.queue.size", Integer::parseInt, _DEFAULT_QUEUE_SIZE));
+
+		_virtualIO =
+			_getProperty(properties, "io.virtual.threads", Boolean::parseBoolean, true) &&
+			IOExecutors.supportsVirtualThreads();
+
+		_ioExecutorService = IOExecutors.newExecutorService(
+			(ioPoolSize > 0) ? ioPoolSize : (processors * 4),
+			_getProperty(properties, "io.queue.size", Integer::parseInt, _DEFAULT_QUEUE_SIZE), _virtualIO);
+
+		_upgradeExecutorService = newThreadPool(
+			"lugbot-upgrade-", (upgradePoolSize > 0) ? upgradePoolSize : processors,
+			_getProperty(properties, "upgrade.queue.size", Integer::parseInt, _DEFAULT_QUEUE_SIZE));
+	}
+
+	@Deactivate
+	public void deactivate() {
+		_cpuExecutorService.shutdownNow();
+		_ioExecutorService.shutdownNow();
+		_upgradeExecutorService.shutdownNow();
+	}
+
+	public ExecutorService getCPUExecutorService() {
+		return _cpuExecutorService;
+	}
+
+	public ExecutorService getIOExecutorService() {
+		return _ioExecutorService;
+	}
+
+	/**
+	 * Returns the pool asynchronous upgrades run on unless their caller
+	 * gives an executor. An upgrade holds its thread until it is done and
+	 * hands its own work to the CPU and I/O pools, so upgrades waiting for
+	 * that work never occupy the threads it needs.
+	 */
+	public ExecutorService getUpgradeExecutorService() {
+		return _upgradeExecutorService;
+	}
+
+	/**
+	 * Returns whether the I/O pool runs its tasks on virtual threads.
+	 */
+	public boolean isVirtualIO() {
+		return _virtualIO;
+	}
+
+	static ExecutorService newThreadPool(String namePrefix, int poolSize, int queueSize) {
+		AtomicInteger threadCount = new AtomicInteger();
+
+		ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+			Math.max(1, poolSize), Math.max(1, poolSize), 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+			runnable -> {
+				Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+		threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+		return threadPoolExecutor;
+	}
+
+	private static <T> T _getProperty(
+		Map<String, Object> properties, String key, Function<String, T> function, T defaultValue) {
+
+		return Optional.ofNullable(
+			properties.get(key)
+		).map(
+			String::valueOf
+		).map(
+			function
+		).orElse(
+			defaultValue
+		);
+	}
+
+	private static final int _DEFAULT_QUEUE_SIZE = 10000;
+
+	private ExecutorService _cpuExecutorService;
+	private ExecutorService _ioExecutorService;
+	private ExecutorService _upgradeExecutorService;
+	private boolean _virtualIO;
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * Describes the configuration of {@link UpgradeExecutors} to Config Admin.
+ * A pool size of zero derives the size from the number of processors.
+ *
+ * @author Gregory Amerson
+ */
+@ObjectClassDefinition(id = "spring-mvc-portlet-upgrade-executors", name = "Spring MVC Portlet Upgrade Executors")
+public @interface UpgradeExecutorsConfiguration {
+
+	@AttributeDefinition(description = "Threads of the pool for parsing and analysis.", name = "CPU pool size")
+	public int cpu_pool_size() default 0;
+
+	@AttributeDefinition(description = "Tasks the CPU pool queues before it rejects more.", name = "CPU queue size")
+	public int cpu_queue_size() default 10000;
+
+	@AttributeDefinition(description = "Threads of the pool for file and git I/O.", name = "I/O pool size")
+	public int io_pool_size() default 0;
+
+	@AttributeDefinition(description = "Tasks the I/O pool queues before it rejects more.", name = "I/O queue size")
+	public int io_queue_size() default 10000;
+
+	@AttributeDefinition(
+		description = "Run I/O tasks on virtual threads when the JVM supports them.", name = "I/O virtual threads"
+	)
+	public boolean io_virtual_threads() default true;
+
+	@AttributeDefinition(description = "Asynchronous upgrades that run at a time.", name = "Upgrade pool size")
+	public int upgrade_pool_size() default 0;
+
+	@AttributeDefinition(
+		description = "Asynchronous upgrades the upgrade pool queues before it rejects more.",
+		name = "Upgrade queue size"
+	)
+	public int upgrade_queue_size() default 10000;
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.ide.upgrade.plan.core.UpgradeProblem;
+import com.liferay.lugbot.custom.springmvcportlet.helper.StringPool;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of an {@link UpgradeProblem}, shared by the analysis
+ * cache and the problem spill file. The resource is not stored; problems
+ * are bound to a file again when they are read.
+ *
+ * @author Gregory Amerson
+ */
+public class UpgradeProblemCodec {
+
+	public static UpgradeProblem read(DataInput dataInput, File file, StringPool stringPool) throws IOException {
+		String uuid = _readString(dataInput);
+		String title = _readString(dataInput);
+		String summary = _readString(dataInput);
+		String type = _readString(dataInput);
+		String ticket = _readString(dataInput);
+		String version = _readString(dataInput);
+		int lineNumber = dataInput.readInt();
+		int startOffset = dataInput.readInt();
+		int endOffset = dataInput.readInt();
+		String html = _readString(dataInput);
+		String autoCorrectContext = _readString(dataInput);
+		int status = dataInput.readInt();
+		long markerId = dataInput.readLong();
+		int markerType = dataInput.readInt();
+
+		return new UpgradeProblem(
+			uuid, stringPool.intern(title), stringPool.intern(summary), stringPool.intern(type),
+			stringPool.intern(ticket), stringPool.intern(version), file, lineNumber, startOffset, endOffset,
+			stringPool.intern(html), stringPool.intern(autoCorrectContext), status, markerId, markerType);
+	}
+
+	/**
+	 * Returns a copy of the problem bound to {@code file} whose repeated
+	 * strings come from {@code stringPool}.
+	 */
+	public static UpgradeProblem intern(UpgradeProblem upgradeProblem, File file, StringPool stringPool) {
+		return new UpgradeProblem(
+			upgradeProblem.getUuid(), stringPool.intern(upgradeProblem.getTitle()),
+			stringPool.intern(upgradeProblem.getSummary()), stringPool.intern(upgradeProblem.getType()),
+			stringPool.intern(upgradeProblem.getTicket()), stringPool.intern(upgradeProblem.getVersion()), file,
+			upgradeProblem.getLineNumber(), upgradeProblem.getStartOffset(), upgradeProblem.getEndOffset(),
+			stringPool.intern(upgradeProblem.getHtml()), stringPool.intern(upgradeProblem.getAutoCorrectContext()),
+			upgradeProblem.getStatus(), upgradeProblem.getMarkerId(), upgradeProblem.getMarkerType());
+	}
+
+	public static void write(DataOutput dataOutput, UpgradeProblem upgradeProblem) throws IOException {
+		_writeString(dataOutput, upgradeProblem.getUuid());
+		_writeString(dataOutput, upgradeProblem.getTitle());
+		_writeString(dataOutput, upgradeProblem.getSummary());
+		_writeString(dataOutput, upgradeProblem.getType());
+		_writeString(dataOutput, upgradeProblem.getTicket());
+		_writeString(dataOutput, upgradeProblem.getVersion());
+		dataOutput.writeInt(upgradeProblem.getLineNumber());
+		dataOutput.writeInt(upgradeProblem.getStartOffset());
+		dataOutput.writeInt(upgradeProblem.getEndOffset());
+		_writeString(dataOutput, upgradeProblem.getHtml());
+		_writeString(dataOutput, upgradeProblem.getAutoCorrectContext());
+		dataOutput.writeInt(upgradeProblem.getStatus());
+		dataOutput.writeLong(upgradeProblem.getMarkerId());
+		dataOutput.writeInt(upgradeProblem.getMarkerType());
+	}
+
+	private static String _readString(DataInput dataInput) throws IOException {
+		int length = dataInput.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+
+		dataInput.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void _writeString(DataOutput dataOutput, String value) throws IOException {
+		if (value == null) {
+			dataOutput.writeInt(-1);
+
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+		dataOutput.writeInt(bytes.length);
+		dataOutput.write(bytes);
+	}
+
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import com.liferay.ide.upgrade.plan.core.UpgradeProblem;
+import com.liferay.ide.upgrade.problems.core.AutoFileMigrator;
+import com.liferay.lugbot.custom.springmvcportlet.helper.StringPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Collects the problems found by each migrator while files are analyzed
+ * concurrently. Problems are keyed by the walk index of the file they belong
+ * to, so they are handed out in the same order a sequential walk would
+ * produce them.
+ *
+ * <p>
+ * Repeated problem strings are pooled. Once more than
+ * {@code maxProblemsInMemory} problems are held, further problems are
+ * written to a spill file and read back one file at a time.
+ * </p>
+ *
+ * @author Gregory Amerson
+ */
+public class UpgradeProblemCollector implements Closeable {
+
+	public UpgradeProblemCollector(int maxProblemsInMemory) {
+		_maxProblemsInMemory = maxProblemsInMemory;
+	}
+
+	public void add(
+			ServiceReference<AutoFileMigrator> ref, int fileIndex, File file, List<UpgradeProblem> upgradeProblems)
+		throws IOException {
+
+		if (upgradeProblems.isEmpty()) {
+			return;
+		}
+
+		_problemCount.addAndGet(upgradeProblems.size());
+
+		ConcurrentSkipListMap<Integer, FileProblems> fileProblems = _fileProblems.computeIfAbsent(
+			ref, key -> new ConcurrentSkipListMap<>());
+
+		if (_problemsInMemory.addAndGet(upgradeProblems.size()) > _maxProblemsInMemory) {
+			_problemsInMemory.addAndGet(-upgradeProblems.size());
+
+			fileProblems.put(fileIndex, _spill(file, upgradeProblems));
+
+			return;
+		}
+
+		List<UpgradeProblem> internedUpgradeProblems = new ArrayList<>(upgradeProblems.size());
+
+		for (UpgradeProblem upgradeProblem : upgradeProblems) {
+			internedUpgradeProblems.add(UpgradeProblemCodec.intern(upgradeProblem, file, _stringPool));
+		}
+
+		fileProblems.put(fileIndex, new FileProblems(file, internedUpgradeProblems));
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (_spillChannel != null) {
+				_spillChannel.close();
+
+				Files.deleteIfExists(_spillPath);
+
+				_spillChannel = null;
+			}
+		}
+	}
+
+	/**
+	 * Hands the problems a migrator found to {@code consumer}, one file at a
+	 * time and in walk order.
+	 */
+	public void forEach(ServiceReference<AutoFileMigrator> ref, BiConsumer<File, List<UpgradeProblem>> consumer)
+		throws IOException {
+
+		Map<Integer, FileProblems> fileProblems = _fileProblems.get(ref);
+
+		if (fileProblems == null) {
+			return;
+		}
+
+		for (FileProblems curFileProblems : fileProblems.values()) {
+			consumer.accept(curFileProblems._file, _getUpgradeProblems(curFileProblems));
+		}
+	}
+
+	public int getProblemCount() {
+		return _problemCount.get();
+	}
+
+	public Set<ServiceReference<AutoFileMigrator>> getRefs() {
+		return _fileProblems.keySet();
+	}
+
+	public int getSpilledCount() {
+		return _spilledCount.get();
+	}
+
+	public boolean isEmpty() {
+		return _fileProblems.isEmpty();
+	}
+
+	private List<UpgradeProblem> _getUpgradeProblems(FileProblems fileProblems) throws IOException {
+		if (fileProblems._upgradeProblems != null) {
+			return fileProblems._upgradeProblems;
+		}
+
+		ByteBuffer byteBuffer = ByteBuffer.allocate(fileProblems._length);
+
+		synchronized (this) {
+			while (byteBuffer.hasRemaining()) {
+				if (_spillChannel.read(byteBuffer, fileProblems._offset + byteBuffer.position()) < 0) {
+					throw new IOException("Unexpected end of spill file " + _spillPath);
+				}
+			}
+		}
+
+		DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(byteBuffer.array()));
+
+		int count = dataInputStream.readInt();
+
+		List<UpgradeProblem> upgradeProblems = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			upgradeProblems.add(UpgradeProblemCodec.read(dataInputStream, fileProblems._file, _stringPool));
+		}
+
+		return upgradeProblems;
+	}
+
+	private FileProblems _spill(File file, List<UpgradeProblem> upgradeProblems) throws IOException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+		try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream)) {
+			dataOutputStream.writeInt(upgradeProblems.size());
+
+			for (UpgradeProblem upgradeProblem : upgradeProblems) {
+				UpgradeProblemCodec.write(dataOutputStream, upgradeProblem);
+			}
+		}
+
+		ByteBuffer byteBuffer = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+
+		long offset;
+
+		synchronized (this) {
+			if (_spillChannel == null) {
+				_spillPath = Files.createTempFile("upgrade-problems", ".spill");
+
+				_spillChannel = FileChannel.open(
+					_spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+			}
+
+			offset = _spillChannel.size();
+
+			while (byteBuffer.hasRemaining()) {
+				_spillChannel.write(byteBuffer, offset + byteBuffer.position());
+			}
+		}
+
+		_spilledCount.addAndGet(upgradeProblems.size());
+
+		return new FileProblems(file, offset, byteBuffer.capacity());
+	}
+
+	private final ConcurrentMap<ServiceReference<AutoFileMigrator>, ConcurrentSkipListMap<Integer, FileProblems>>
+		_fileProblems = new ConcurrentHashMap<>();
+	private final int _maxProblemsInMemory;
+	private final AtomicInteger _problemCount = new AtomicInteger();
+	private final AtomicInteger _problemsInMemory = new AtomicInteger();
+	private FileChannel _spillChannel;
+	private final AtomicInteger _spilledCount = new AtomicInteger();
+	private Path _spillPath;
+	private final StringPool _stringPool = new StringPool();
+
+	private static class FileProblems {
+
+		private FileProblems(File file, List<UpgradeProblem> upgradeProblems) {
+			_file = file;
+			_upgradeProblems = upgradeProblems;
+
+			_length = 0;
+			_offset = -1;
+		}
+
+		private FileProblems(File file, long offset, int length) {
+			_file = file;
+			_offset = offset;
+			_length = length;
+
+			_upgradeProblems = null;
+		}
+
+		private final File _file;
+		private final int _length;
+		private final long _offset;
+		private final List<UpgradeProblem> _upgradeProblems;
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.async;
+
+import java.lang.reflect.InvocationTargetException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.osgi.util.promise.Deferred;
+import org.osgi.util.promise.Promise;
+
+/**
+ * An upgrade that runs once, either on an executor or on the calling thread,
+ * and resolves a promise with its result. Resolving the cancellation promise
+ * before the upgrade finishes interrupts it and fails the result with a
+ * {@link CancellationException}.
+ *
+ * @author Gregory Amerson
+ */
+public class AsyncUpgrade<T> {
+
+	/**
+	 * A cancellation promise that is never resolved. Upgrades given it do not
+	 * register a callback on it, so it can be shared by any number of them.
+	 */
+	public static final Promise<Void> NO_CANCELLATION = new Deferred<Void>(
+	).getPromise();
+
+	public AsyncUpgrade(Callable<T> callable) {
+		_upgradeTask = new UpgradeTask(callable);
+	}
+
+	public AsyncUpgrade(Callable<T> callable, Promise<?> cancellation) {
+		_upgradeTask = new UpgradeTask(callable);
+
+		if (cancellation != NO_CANCELLATION) {
+			cancellation.onResolve(() -> _upgradeTask.cancel(true));
+		}
+	}
+
+	public Promise<T> getPromise() {
+		return _deferred.getPromise();
+	}
+
+	/**
+	 * Runs the upgrade on the calling thread and returns its result, or
+	 * throws what it failed with. Checked failures are wrapped in an
+	 * {@link IllegalStateException}.
+	 */
+	public T run() {
+		_upgradeTask.run();
+
+		try {
+			return _deferred.getPromise(
+			).getValue();
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+
+			throw new CancellationException("Interrupted while waiting for the upgrade");
+		}
+		catch (InvocationTargetException ite) {
+			Throwable cause = ite.getCause();
+
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Hands the upgrade to {@code executor} and returns the promise of its
+	 * result. The promise fails when the executor rejects the upgrade.
+	 */
+	public Promise<T> submit(Executor executor) {
+		try {
+			executor.execute(_upgradeTask);
+		}
+		catch (RejectedExecutionException ree) {
+			_upgradeTask._fail(ree);
+		}
+
+		return getPromise();
+	}
+
+	private final Deferred<T> _deferred = new Deferred<>();
+	private final UpgradeTask _upgradeTask;
+
+	private class UpgradeTask extends FutureTask<T> {
+
+		@Override
+		protected void done() {
+			try {
+				_deferred.resolve(get());
+			}
+			catch (CancellationException ce) {
+				_deferred.fail(ce);
+			}
+			catch (ExecutionException ee) {
+				_deferred.fail(ee.getCause());
+			}
+			catch (InterruptedException ie) {
+				_deferred.fail(ie);
+			}
+		}
+
+		private UpgradeTask(Callable<T> callable) {
+			super(callable);
+		}
+
+		private void _fail(Throwable throwable) {
+			setException(throwable);
+		}
+
+	}
+
+}
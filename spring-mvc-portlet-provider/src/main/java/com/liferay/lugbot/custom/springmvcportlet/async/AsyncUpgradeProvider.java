@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.async;
+
+import com.liferay.lugbot.api.LugbotConfig;
+import com.liferay.lugbot.api.ProposalDTO;
+import com.liferay.lugbot.api.UpgradeProvider;
+
+import java.nio.file.Path;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import org.osgi.util.promise.Promise;
+
+/**
+ * An {@link UpgradeProvider} that can also run an upgrade asynchronously. The
+ * Spring MVC portlet providers register under both interfaces, and their
+ * synchronous {@code provideUpgrade} runs the same upgrade on the calling
+ * thread and waits for it, so a caller can overlap independent repositories
+ * or providers without changing what each upgrade does.
+ *
+ * @author Gregory Amerson
+ */
+public interface AsyncUpgradeProvider extends UpgradeProvider {
+
+	/**
+	 * Starts the upgrade without a way to cancel it.
+	 */
+	public default Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName) {
+
+		return provideUpgradeAsync(repoPath, lugbotConfig, upgradeName, AsyncUpgrade.NO_CANCELLATION);
+	}
+
+	/**
+	 * Starts the upgrade on {@code executor} and returns a promise of its
+	 * proposal. Resolving or failing {@code cancellation} before the upgrade
+	 * finishes interrupts it and fails the returned promise with a
+	 * {@link java.util.concurrent.CancellationException}. Changes the
+	 * upgrade already made to the repository are not undone. The promise
+	 * fails with a {@link java.util.concurrent.RejectedExecutionException}
+	 * when the executor rejects the upgrade.
+	 */
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Executor executor, Promise<?> cancellation);
+
+	/**
+	 * Starts the upgrade on the upgrade pool of the bundle, which is kept
+	 * apart from the pools the upgrade hands its own work to.
+	 */
+	public Promise<Optional<ProposalDTO>> provideUpgradeAsync(
+		Path repoPath, LugbotConfig lugbotConfig, String upgradeName, Promise<?> cancellation);
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.sevenz.SevenZFileOptions;
+
+/**
+ * Extracts archives entry by entry through a fixed buffer, so memory use
+ * does not depend on the size of the entries. Zip archives are read with
+ * random access and their entries are inflated in parallel.
+ *
+ * @author Gregory Amerson
+ */
+public class ArchiveFunctions {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Resolves an entry name against the extraction directory, rejecting
+	 * names that would land outside of it.
+	 */
+	public static Path resolveEntry(Path toPath, String name) throws IOException {
+		Path dirPath = toPath.toAbsolutePath(
+		).normalize();
+
+		Path entryPath = dirPath.resolve(
+			name
+		).normalize();
+
+		if (!entryPath.startsWith(dirPath)) {
+			throw new IOException("Entry is outside of the target dir: " + name);
+		}
+
+		return entryPath;
+	}
+
+	public static long un7zip(Path sevenZPath, Path toPath) throws IOException {
+		return un7zip(sevenZPath, toPath, DEFAULT_BUFFER_SIZE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Extracts a 7z archive into {@code toPath} and returns the number of
+	 * bytes written. {@code maxMemoryLimitInKb} caps the memory the
+	 * decompressors may allocate; archives that need more are rejected.
+	 */
+	public static long un7zip(Path sevenZPath, Path toPath, int bufferSize, int maxMemoryLimitInKb)
+		throws IOException {
+
+		SevenZFileOptions sevenZFileOptions = SevenZFileOptions.builder(
+		).withMaxMemoryLimitInKb(
+			maxMemoryLimitInKb
+		).build();
+
+		byte[] buffer = new byte[bufferSize];
+
+		long bytesWritten = 0;
+
+		try (SevenZFile sevenZFile = new SevenZFile(sevenZPath.toFile(), sevenZFileOptions)) {
+			SevenZArchiveEntry sevenZArchiveEntry;
+
+			while ((sevenZArchiveEntry = sevenZFile.getNextEntry()) != null) {
+				Path entryPath = resolveEntry(toPath, sevenZArchiveEntry.getName());
+
+				if (sevenZArchiveEntry.isDirectory()) {
+					Files.createDirectories(entryPath);
+
+					continue;
+				}
+
+				Files.createDirectories(entryPath.getParent());
+
+				try (OutputStream outputStream = Files.newOutputStream(entryPath)) {
+					if (!sevenZArchiveEntry.hasStream()) {
+						continue;
+					}
+
+					int read;
+
+					while ((read = sevenZFile.read(buffer, 0, buffer.length)) != -1) {
+						outputStream.write(buffer, 0, read);
+
+						bytesWritten += read;
+					}
+				}
+			}
+		}
+
+		return bytesWritten;
+	}
+
+	/**
+	 * Extracts a zip archive into {@code toPath}, inflating up to
+	 * {@code parallelism} entries at a time on {@code executor}, and returns
+	 * the number of bytes written. Every directory is created before any
+	 * entry is written. Entries that resolve to the same path are extracted
+	 * once, from the last of them, so no two tasks write the same file.
+	 */
+	public static long unzip(Path zipPath, Path toPath, Executor executor, int parallelism) throws IOException {
+		try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+			Map<Path, ZipEntry> zipEntries = new LinkedHashMap<>();
+			TreeSet<Path> dirPaths = new TreeSet<>();
+
+			dirPaths.add(toPath.toAbsolutePath().normalize());
+
+			for (ZipEntry zipEntry : Collections.list(zipFile.entries())) {
+				Path entryPath = resolveEntry(toPath, zipEntry.getName());
+
+				if (zipEntry.isDirectory()) {
+					dirPaths.add(entryPath);
+				}
+				else {
+					dirPaths.add(entryPath.getParent());
+
+					zipEntries.put(entryPath, zipEntry);
+				}
+			}
+
+			for (Path dirPath : dirPaths.descendingSet()) {
+				if (!Files.isDirectory(dirPath)) {
+					Files.createDirectories(dirPath);
+				}
+			}
+
+			LongAdder bytesWritten = new LongAdder();
+
+			if (parallelism <= 1) {
+				for (Map.Entry<Path, ZipEntry> entry : zipEntries.entrySet()) {
+					bytesWritten.add(_extract(zipFile, entry.getValue(), entry.getKey()));
+				}
+
+				return bytesWritten.sum();
+			}
+
+			List<Callable<Void>> callables = new ArrayList<>(zipEntries.size());
+
+			for (Map.Entry<Path, ZipEntry> entry : zipEntries.entrySet()) {
+				callables.add(
+					() -> {
+						bytesWritten.add(_extract(zipFile, entry.getValue(), entry.getKey()));
+
+						return null;
+					});
+			}
+
+			try {
+				ParallelTasks.invokeAllOrFail(executor, parallelism, callables);
+			}
+			catch (ExecutionException ee) {
+				Throwable cause = ee.getCause();
+
+				if (cause instanceof IOException) {
+					throw (IOException)cause;
+				}
+
+				throw new IOException(cause);
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+
+				throw new IOException(ie);
+			}
+
+			return bytesWritten.sum();
+		}
+	}
+
+	private static long _extract(ZipFile zipFile, ZipEntry zipEntry, Path entryPath) throws IOException {
+		ByteBuffer byteBuffer = _byteBuffer.get();
+
+		byte[] buffer = byteBuffer.array();
+
+		long bytesWritten = 0;
+
+		try (InputStream inputStream = zipFile.getInputStream(zipEntry);
+			FileChannel fileChannel = FileChannel.open(
+				entryPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+
+			int read;
+
+			while ((read = inputStream.read(buffer)) != -1) {
+				byteBuffer.clear(
+				).limit(
+					read
+				);
+
+				while (byteBuffer.hasRemaining()) {
+					bytesWritten += fileChannel.write(byteBuffer);
+				}
+			}
+		}
+
+		return bytesWritten;
+	}
+
+	private static final ThreadLocal<ByteBuffer> _byteBuffer = ThreadLocal.withInitial(
+		() -> ByteBuffer.allocate(DEFAULT_BUFFER_SIZE));
+
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.IOException;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.AddCommand;
+import org.eclipse.jgit.api.CommitCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.RmCommand;
+import org.eclipse.jgit.api.errors.EmptyCommitException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Records the paths a provider created, modified or deleted inside a
+ * repository, so only those paths are staged and committed. Paths below a
+ * directory the provider created are folded into that directory. Staging
+ * goes through JGit on a single repository handle, so no {@code git}
+ * process is started per batch.
+ *
+ * @author Gregory Amerson
+ */
+public class ChangeJournal {
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	public ChangeJournal(Path repoPath) {
+		_repoPath = repoPath.toAbsolutePath(
+		).normalize();
+	}
+
+	/**
+	 * Stages the journaled paths in batches of at most {@code batchSize}
+	 * paths and commits only those paths with a single commit, so changes
+	 * the user had already staged stay staged and out of the commit. Returns
+	 * the number of paths that were staged, zero when there was nothing to
+	 * commit.
+	 */
+	public int commit(String message, int batchSize) throws Exception {
+		List<String> paths = getPaths();
+
+		if (paths.isEmpty()) {
+			return 0;
+		}
+
+		FileRepositoryBuilder fileRepositoryBuilder = new FileRepositoryBuilder();
+
+		fileRepositoryBuilder.findGitDir(_repoPath.toFile());
+		fileRepositoryBuilder.setMustExist(true);
+
+		if (fileRepositoryBuilder.getGitDir() == null) {
+			throw new IOException(_repoPath + " is not inside a git repository");
+		}
+
+		try (Repository repository = fileRepositoryBuilder.build();
+			Git git = new Git(repository)) {
+
+			String prefix = _getPrefix(repository);
+
+			ObjectId headTreeId = repository.resolve("HEAD^{tree}");
+
+			CommitCommand commitCommand = git.commit(
+			).setAllowEmpty(
+				false
+			).setMessage(
+				message
+			);
+
+			for (List<String> batch : _toBatches(paths, Math.max(1, batchSize))) {
+				AddCommand addCommand = git.add();
+				AddCommand updateCommand = git.add(
+				).setUpdate(
+					true
+				);
+				RmCommand rmCommand = git.rm(
+				).setCached(
+					true
+				);
+
+				boolean add = false;
+				boolean rm = false;
+
+				for (String path : batch) {
+					String filePattern = prefix + path;
+
+					if (Files.exists(_repoPath.resolve(path))) {
+						addCommand.addFilepattern(filePattern);
+						updateCommand.addFilepattern(filePattern);
+
+						commitCommand.setOnly(filePattern);
+
+						add = true;
+					}
+					else if (_isCommitted(repository, headTreeId, filePattern)) {
+						rmCommand.addFilepattern(filePattern);
+
+						commitCommand.setOnly(filePattern);
+
+						rm = true;
+					}
+				}
+
+				if (add) {
+					addCommand.call();
+
+					updateCommand.call();
+				}
+
+				if (rm) {
+					rmCommand.call();
+				}
+			}
+
+			try {
+				commitCommand.call();
+			}
+			catch (EmptyCommitException ece) {
+				return 0;
+			}
+		}
+
+		return paths.size();
+	}
+
+	/**
+	 * Creates {@code dirPath} and its missing parents, recording every
+	 * directory that had to be created.
+	 */
+	public void createDirectories(Path dirPath) throws IOException {
+		if (Files.isDirectory(dirPath)) {
+			return;
+		}
+
+		createDirectories(dirPath.getParent());
+
+		try {
+			Files.createDirectory(dirPath);
+		}
+		catch (FileAlreadyExistsException faee) {
+			return;
+		}
+
+		created(dirPath);
+	}
+
+	public void created(Path path) {
+		_record(path, Change.CREATED);
+	}
+
+	public void deleted(Path path) {
+		_record(path, Change.DELETED);
+	}
+
+	/**
+	 * Forgets {@code path}, so it is left out of the commit.
+	 */
+	public void discard(Path path) {
+		_changes.remove(_toRelativePath(path));
+	}
+
+	public int getCount(Change change) {
+		return (int)_changes.values(
+		).stream(
+		).filter(
+			change::equals
+		).count();
+	}
+
+	/**
+	 * Returns the journaled paths relative to the repository, sorted, without
+	 * the paths that lie below a created directory.
+	 */
+	public List<String> getPaths() {
+		Set<String> createdDirs = _changes.entrySet(
+		).stream(
+		).filter(
+			entry -> (entry.getValue() == Change.CREATED) && Files.isDirectory(_repoPath.resolve(entry.getKey()))
+		).map(
+			Map.Entry::getKey
+		).collect(
+			Collectors.toSet()
+		);
+
+		return _changes.keySet(
+		).stream(
+		).filter(
+			path -> !_hasAncestor(path, createdDirs)
+		).collect(
+			Collectors.toList()
+		);
+	}
+
+	public boolean isEmpty() {
+		return _changes.isEmpty();
+	}
+
+	public void modified(Path path) {
+		_record(path, Change.MODIFIED);
+	}
+
+	public enum Change {
+
+		CREATED, DELETED, MODIFIED
+
+	}
+
+	private static boolean _hasAncestor(String path, Set<String> dirs) {
+		for (int i = path.lastIndexOf('/'); i > 0; i = path.lastIndexOf('/', i - 1)) {
+			if (dirs.contains(path.substring(0, i))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static List<List<String>> _toBatches(List<String> paths, int batchSize) {
+		List<List<String>> batches = new ArrayList<>();
+
+		for (int i = 0; i < paths.size(); i += batchSize) {
+			batches.add(paths.subList(i, Math.min(paths.size(), i + batchSize)));
+		}
+
+		return batches;
+	}
+
+	/**
+	 * Returns the path of the repository relative to the work tree, with a
+	 * trailing {@code /}, or an empty string when they are the same.
+	 */
+	private String _getPrefix(Repository repository) {
+		String prefix = repository.getWorkTree(
+		).toPath(
+		).toAbsolutePath(
+		).normalize(
+		).relativize(
+			_repoPath
+		).toString(
+		).replace(
+			'\\', '/'
+		);
+
+		if (prefix.isEmpty()) {
+			return prefix;
+		}
+
+		return prefix + "/";
+	}
+
+	private boolean _isCommitted(Repository repository, ObjectId headTreeId, String path) throws IOException {
+		if (headTreeId == null) {
+			return false;
+		}
+
+		try (TreeWalk treeWalk = TreeWalk.forPath(repository, path, headTreeId)) {
+			if (treeWalk != null) {
+				return true;
+			}
+
+			return false;
+		}
+	}
+
+	private void _record(Path path, Change change) {
+		_changes.merge(
+			_toRelativePath(path), change, (previous, next) -> (previous == Change.CREATED) ? previous : next);
+	}
+
+	private String _toRelativePath(Path path) {
+		Path absolutePath = path.toAbsolutePath(
+		).normalize();
+
+		if (!absolutePath.startsWith(_repoPath) || absolutePath.equals(_repoPath)) {
+			throw new IllegalArgumentException(path + " is not inside " + _repoPath);
+		}
+
+		return _repoPath.relativize(
+			absolutePath
+		).toString(
+		).replace(
+			'\\', '/'
+		);
+	}
+
+	private final Map<String, Change> _changes = new ConcurrentSkipListMap<>();
+	private final Path _repoPath;
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the {@code groupId:artifactId} of a Maven dependency to the Gradle
+ * dependency a 7.2 module uses instead. The index is a text file shipped
+ * with the bundle, read once into a hash map, so it needs no network and
+ * answers every lookup in constant time.
+ *
+ * @author Gregory Amerson
+ */
+public class DependencyIndex {
+
+	public static DependencyIndex load(Path path) throws IOException {
+		return _load(path.toString(), Files.newInputStream(path));
+	}
+
+	public static DependencyIndex load(String resourceName) throws IOException {
+		InputStream inputStream = DependencyIndex.class.getResourceAsStream(resourceName);
+
+		if (inputStream == null) {
+			throw new IOException("Unable to find dependency index " + resourceName);
+		}
+
+		return _load(resourceName, inputStream);
+	}
+
+	/**
+	 * Returns the mapping of the Maven dependency, or {@code null} when the
+	 * index does not know it.
+	 */
+	public Mapping get(String groupId, String artifactId) {
+		return _mappings.get(groupId + ":" + artifactId);
+	}
+
+	public int size() {
+		return _mappings.size();
+	}
+
+	public static class Mapping {
+
+		public String getConfiguration() {
+			return _configuration;
+		}
+
+		public String getGroup() {
+			return _group;
+		}
+
+		public String getName() {
+			return _name;
+		}
+
+		/**
+		 * Returns the version, or {@code null} when the target platform
+		 * manages it.
+		 */
+		public String getVersion() {
+			return _version;
+		}
+
+		/**
+		 * Returns whether the dependency has no counterpart in 7.2 and is
+		 * left out of the module.
+		 */
+		public boolean isDropped() {
+			return _configuration == null;
+		}
+
+		private Mapping(String configuration, String group, String name, String version) {
+			_configuration = configuration;
+			_group = group;
+			_name = name;
+			_version = version;
+		}
+
+		private final String _configuration;
+		private final String _group;
+		private final String _name;
+		private final String _version;
+
+	}
+
+	private static DependencyIndex _load(String name, InputStream inputStream) throws IOException {
+		Map<String, Mapping> mappings = new HashMap<>();
+
+		try (BufferedReader bufferedReader = new BufferedReader(
+				new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+
+			String line;
+			int lineNumber = 0;
+
+			while ((line = bufferedReader.readLine()) != null) {
+				lineNumber++;
+
+				line = line.trim();
+
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				int index = line.indexOf('=');
+
+				if (index < 0) {
+					throw new IOException("Missing '=' at " + name + ":" + lineNumber);
+				}
+
+				String key = line.substring(
+					0, index
+				).trim();
+				String value = line.substring(
+					index + 1
+				).trim();
+
+				mappings.put(key, _parseMapping(value, name, lineNumber));
+			}
+		}
+
+		return new DependencyIndex(mappings);
+	}
+
+	private static Mapping _parseMapping(String value, String name, int lineNumber) throws IOException {
+		if (value.equals("-")) {
+			return new Mapping(null, null, null, null);
+		}
+
+		String[] parts = value.split("\\s+");
+
+		if (parts.length != 2) {
+			throw new IOException("Expected '<configuration> <group>:<name>' at " + name + ":" + lineNumber);
+		}
+
+		String[] coordinates = parts[1].split(":");
+
+		if ((coordinates.length < 2) || (coordinates.length > 3)) {
+			throw new IOException("Expected '<group>:<name>[:<version>]' at " + name + ":" + lineNumber);
+		}
+
+		return new Mapping(parts[0], coordinates[0], coordinates[1], (coordinates.length == 3) ? coordinates[2] : null);
+	}
+
+	private DependencyIndex(Map<String, Mapping> mappings) {
+		_mappings = mappings;
+	}
+
+	private final Map<String, Mapping> _mappings;
+
+}
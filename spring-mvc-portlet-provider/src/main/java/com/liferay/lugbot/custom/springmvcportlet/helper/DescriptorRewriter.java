@@ -0,0 +1,733 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import java.math.BigDecimal;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Rewrites the descriptors of a Spring portlet plugin for 7.2 in a single
+ * streaming pass over each file. Only the start tag of the current element
+ * and, in {@code web.xml}, one {@code <listener>} element are ever held, so a
+ * descriptor is rewritten in constant memory whatever its size. The result
+ * is written next to the descriptor and moved over it only when a rule
+ * changed something; descriptors that are already up to date are left
+ * untouched byte for byte.
+ *
+ * @author Gregory Amerson
+ */
+public class DescriptorRewriter {
+
+	public static final Set<String> DEFAULT_OBSOLETE_LISTENERS = Collections.unmodifiableSet(
+		new HashSet<>(
+			Arrays.asList(
+				"com.liferay.portal.kernel.servlet.PluginContextListener",
+				"com.liferay.portal.kernel.servlet.SecurePluginContextListener",
+				"com.liferay.portal.kernel.spring.context.PortletContextLoaderListener")));
+
+	/**
+	 * Returns the type of descriptor the path holds, or {@code null} when it
+	 * is not one of the descriptors this rewriter handles.
+	 */
+	public static Type getType(Path path) {
+		Path parentPath = path.getParent();
+
+		if ((parentPath == null) || (parentPath.getFileName() == null)) {
+			return null;
+		}
+
+		String fileName = String.valueOf(path.getFileName());
+		String parentName = String.valueOf(parentPath.getFileName());
+
+		if (parentName.equals("WEB-INF")) {
+			switch (fileName) {
+				case "liferay-display.xml":
+					return Type.DISPLAY;
+				case "liferay-portlet.xml":
+					return Type.LIFERAY_PORTLET;
+				case "portlet.xml":
+					return Type.PORTLET;
+				case "web.xml":
+					return Type.WEB;
+			}
+
+			if (fileName.endsWith("-portlet.xml")) {
+				return Type.SPRING_CONTEXT;
+			}
+
+			return null;
+		}
+
+		Path grandParentPath = parentPath.getParent();
+
+		if (parentName.equals("spring") && fileName.endsWith(".xml") && (grandParentPath != null) &&
+			Objects.equals(String.valueOf(grandParentPath.getFileName()), "WEB-INF")) {
+
+			return Type.SPRING_CONTEXT;
+		}
+
+		return null;
+	}
+
+	public DescriptorRewriter(Set<String> obsoleteListeners) {
+		_obsoleteListeners = obsoleteListeners;
+
+		_xmlInputFactory = XMLInputFactory.newInstance();
+
+		_xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		_xmlInputFactory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+		_xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		_xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+		if (_xmlInputFactory.isPropertySupported(_REPORT_CDATA_EVENT)) {
+			_xmlInputFactory.setProperty(_REPORT_CDATA_EVENT, true);
+		}
+
+		_xmlInputFactory.setXMLResolver(
+			(publicId, systemId, baseURI, namespace) -> new ByteArrayInputStream(new byte[0]));
+
+		_xmlOutputFactory = XMLOutputFactory.newInstance();
+	}
+
+	/**
+	 * Rewrites the descriptor in place and returns whether it changed.
+	 */
+	public boolean rewrite(Path path, Type type) throws IOException, XMLStreamException {
+		Path rewritePath = path.resolveSibling(path.getFileName() + ".rewrite");
+
+		try {
+			boolean changed;
+			boolean crlf = _isCRLF(path);
+
+			try (InputStream inputStream = Files.newInputStream(path)) {
+				XMLStreamReader xmlStreamReader = _xmlInputFactory.createXMLStreamReader(inputStream);
+
+				try {
+					changed = _rewrite(xmlStreamReader, rewritePath, type, crlf);
+				}
+				finally {
+					xmlStreamReader.close();
+				}
+			}
+
+			if (changed) {
+				Files.move(rewritePath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			return changed;
+		}
+		finally {
+			Files.deleteIfExists(rewritePath);
+		}
+	}
+
+	public enum Type {
+
+		DISPLAY, LIFERAY_PORTLET, PORTLET, SPRING_CONTEXT, WEB
+
+	}
+
+	private static int _compareVersion(String version, String otherVersion) {
+		try {
+			return new BigDecimal(
+				version.trim()
+			).compareTo(
+				new BigDecimal(otherVersion)
+			);
+		}
+		catch (NumberFormatException nfe) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns whether the first line break of the file is a CRLF. The parser
+	 * hands every line break over as a LF, so CRLF files are written back
+	 * with CRLF line breaks to keep the diff down to what really changed.
+	 */
+	private static boolean _isCRLF(Path path) throws IOException {
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			byte[] bytes = inputStream.readNBytes(_LINE_BREAK_SCAN_SIZE);
+
+			for (int i = 0; i < bytes.length; i++) {
+				if (bytes[i] == '\n') {
+					return (i > 0) && (bytes[i - 1] == '\r');
+				}
+			}
+
+			return false;
+		}
+	}
+
+	private static String _normalize(String text) {
+		return text.replaceAll(
+			"\\s+", " "
+		).trim();
+	}
+
+	private boolean _rewrite(XMLStreamReader xmlStreamReader, Path rewritePath, Type type, boolean crlf)
+		throws IOException, XMLStreamException {
+
+		String encoding = xmlStreamReader.getCharacterEncodingScheme();
+
+		Charset charset = (encoding == null) ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+
+		Writer writer = Files.newBufferedWriter(rewritePath, charset);
+
+		if (crlf) {
+			writer = new CRLFWriter(writer);
+		}
+
+		try {
+			Rewrite rewrite = new Rewrite(type, writer);
+
+			rewrite.copy(xmlStreamReader);
+
+			return rewrite.isChanged();
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	private static final String _DISPLAY_DOCTYPE =
+		"<!DOCTYPE display PUBLIC \"-//Liferay//DTD Display 7.2.0//EN\" " +
+			"\"http://www.liferay.com/dtd/liferay-display_7_2_0.dtd\">";
+
+	private static final String _JAVAEE_NAMESPACE = "http://xmlns.jcp.org/xml/ns/javaee";
+
+	private static final int _LINE_BREAK_SCAN_SIZE = 8192;
+
+	private static final String _LIFERAY_PORTLET_DOCTYPE =
+		"<!DOCTYPE liferay-portlet-app PUBLIC \"-//Liferay//DTD Portlet Application 7.2.0//EN\" " +
+			"\"http://www.liferay.com/dtd/liferay-portlet-app_7_2_0.dtd\">";
+
+	private static final String _PORTLET_NAMESPACE = "http://java.sun.com/xml/ns/portlet/portlet-app_2_0.xsd";
+
+	private static final String _REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+	private static final Pattern _springSchemaVersionPattern = Pattern.compile(
+		"(springframework\\.org/schema/\\S*?)-\\d+(?:\\.\\d+)*\\.xsd");
+
+	private final Set<String> _obsoleteListeners;
+	private final XMLInputFactory _xmlInputFactory;
+	private final XMLOutputFactory _xmlOutputFactory;
+
+	private static class Attribute {
+
+		private Attribute(String prefix, String namespaceURI, String localName, String value) {
+			_prefix = prefix;
+			_namespaceURI = namespaceURI;
+			_localName = localName;
+			_value = value;
+		}
+
+		private final String _localName;
+		private final String _namespaceURI;
+		private final String _prefix;
+		private String _value;
+
+	}
+
+	private static class CRLFWriter extends FilterWriter {
+
+		@Override
+		public void write(char[] chars, int offset, int length) throws IOException {
+			for (int i = offset; i < (offset + length); i++) {
+				write(chars[i]);
+			}
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			if (c == '\n') {
+				out.write('\r');
+			}
+
+			out.write(c);
+		}
+
+		@Override
+		public void write(String s, int offset, int length) throws IOException {
+			for (int i = offset; i < (offset + length); i++) {
+				write(s.charAt(i));
+			}
+		}
+
+		private CRLFWriter(Writer writer) {
+			super(writer);
+		}
+
+	}
+
+	private static class StartTag {
+
+		private StartTag(XMLStreamReader xmlStreamReader) {
+			_prefix = Objects.toString(xmlStreamReader.getPrefix(), "");
+			_localName = xmlStreamReader.getLocalName();
+			_namespaceURI = Objects.toString(xmlStreamReader.getNamespaceURI(), "");
+
+			for (int i = 0; i < xmlStreamReader.getNamespaceCount(); i++) {
+				_namespaces.add(
+					new String[] {
+						Objects.toString(xmlStreamReader.getNamespacePrefix(i), ""),
+						Objects.toString(xmlStreamReader.getNamespaceURI(i), "")
+					});
+			}
+
+			for (int i = 0; i < xmlStreamReader.getAttributeCount(); i++) {
+				_attributes.add(
+					new Attribute(
+						Objects.toString(xmlStreamReader.getAttributePrefix(i), ""),
+						Objects.toString(xmlStreamReader.getAttributeNamespace(i), ""),
+						xmlStreamReader.getAttributeLocalName(i), xmlStreamReader.getAttributeValue(i)));
+			}
+		}
+
+		private Attribute _getAttribute(String namespaceURI, String localName) {
+			for (Attribute attribute : _attributes) {
+				if (attribute._namespaceURI.equals(namespaceURI) && attribute._localName.equals(localName)) {
+					return attribute;
+				}
+			}
+
+			return null;
+		}
+
+		private String _getNamespacePrefix(String namespaceURI) {
+			for (String[] namespace : _namespaces) {
+				if (namespace[1].equals(namespaceURI)) {
+					return namespace[0];
+				}
+			}
+
+			return null;
+		}
+
+		private void _setAttribute(String prefix, String namespaceURI, String localName, String value) {
+			Attribute attribute = _getAttribute(namespaceURI, localName);
+
+			if (attribute == null) {
+				_attributes.add(new Attribute(prefix, namespaceURI, localName, value));
+			}
+			else {
+				attribute._value = value;
+			}
+		}
+
+		private void _setNamespace(String prefix, String namespaceURI) {
+			for (String[] namespace : _namespaces) {
+				if (namespace[0].equals(prefix)) {
+					namespace[1] = namespaceURI;
+
+					return;
+				}
+			}
+
+			_namespaces.add(new String[] {prefix, namespaceURI});
+		}
+
+		private void _write(XMLStreamWriter xmlStreamWriter, boolean empty) throws XMLStreamException {
+			if (empty) {
+				xmlStreamWriter.writeEmptyElement(_prefix, _localName, _namespaceURI);
+			}
+			else {
+				xmlStreamWriter.writeStartElement(_prefix, _localName, _namespaceURI);
+			}
+
+			for (String[] namespace : _namespaces) {
+				if (namespace[0].isEmpty()) {
+					xmlStreamWriter.writeDefaultNamespace(namespace[1]);
+				}
+				else {
+					xmlStreamWriter.writeNamespace(namespace[0], namespace[1]);
+				}
+			}
+
+			for (Attribute attribute : _attributes) {
+				if (attribute._prefix.isEmpty()) {
+					xmlStreamWriter.writeAttribute(attribute._localName, attribute._value);
+				}
+				else {
+					xmlStreamWriter.writeAttribute(
+						attribute._prefix, attribute._namespaceURI, attribute._localName, attribute._value);
+				}
+			}
+		}
+
+		private final List<Attribute> _attributes = new ArrayList<>();
+		private final String _localName;
+		private String _namespaceURI;
+		private final List<String[]> _namespaces = new ArrayList<>();
+		private final String _prefix;
+
+	}
+
+	/**
+	 * The state of one pass over one descriptor. Start tags are written one
+	 * event late so that elements without content keep their short form, and
+	 * whitespace is written one event late so that it goes away together
+	 * with an element that is dropped.
+	 */
+	private class Rewrite {
+
+		public void copy(XMLStreamReader xmlStreamReader) throws IOException, XMLStreamException {
+			if (xmlStreamReader.getVersion() != null) {
+				if (xmlStreamReader.getCharacterEncodingScheme() == null) {
+					_xmlStreamWriter.writeStartDocument(xmlStreamReader.getVersion());
+				}
+				else {
+					_xmlStreamWriter.writeStartDocument(
+						xmlStreamReader.getCharacterEncodingScheme(), xmlStreamReader.getVersion());
+				}
+
+				_xmlStreamWriter.writeCharacters("\n");
+			}
+
+			while (xmlStreamReader.hasNext()) {
+				switch (xmlStreamReader.next()) {
+					case XMLStreamConstants.CDATA:
+						_flush();
+
+						_getXMLStreamWriter().writeCData(xmlStreamReader.getText());
+
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.SPACE:
+						_characters(xmlStreamReader.getText());
+
+						break;
+					case XMLStreamConstants.COMMENT:
+						_flush();
+
+						_getXMLStreamWriter().writeComment(xmlStreamReader.getText());
+
+						_endPrologEvent();
+
+						break;
+					case XMLStreamConstants.DTD:
+						_dtd(xmlStreamReader.getText());
+
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						_endElement(xmlStreamReader.getLocalName());
+
+						break;
+					case XMLStreamConstants.ENTITY_REFERENCE:
+						_flush();
+
+						_getXMLStreamWriter().writeEntityRef(xmlStreamReader.getLocalName());
+
+						break;
+					case XMLStreamConstants.PROCESSING_INSTRUCTION:
+						_flush();
+
+						_getXMLStreamWriter().writeProcessingInstruction(
+							xmlStreamReader.getPITarget(), xmlStreamReader.getPIData());
+
+						_endPrologEvent();
+
+						break;
+					case XMLStreamConstants.START_ELEMENT:
+						_startElement(new StartTag(xmlStreamReader));
+
+						break;
+				}
+			}
+
+			_flush();
+
+			_xmlStreamWriter.writeEndDocument();
+			_xmlStreamWriter.writeCharacters("\n");
+			_xmlStreamWriter.flush();
+			_xmlStreamWriter.close();
+		}
+
+		public boolean isChanged() {
+			return _changed;
+		}
+
+		private Rewrite(Type type, Writer writer) throws XMLStreamException {
+			_type = type;
+			_writer = writer;
+
+			_xmlStreamWriter = _xmlOutputFactory.createXMLStreamWriter(writer);
+		}
+
+		private void _characters(String text) throws XMLStreamException {
+			_flushStartTag();
+
+			if (_listenerClass != null) {
+				_listenerClass.append(text);
+			}
+
+			if (text.trim(
+				).isEmpty()) {
+
+				_whitespace.append(text);
+
+				return;
+			}
+
+			_flushWhitespace();
+
+			_getXMLStreamWriter().writeCharacters(text);
+		}
+
+		private void _dtd(String text) throws XMLStreamException {
+			String doctype = text;
+
+			if (!text.contains("[")) {
+				if (_type == Type.DISPLAY) {
+					doctype = _DISPLAY_DOCTYPE;
+				}
+				else if (_type == Type.LIFERAY_PORTLET) {
+					doctype = _LIFERAY_PORTLET_DOCTYPE;
+				}
+				else if ((_type == Type.WEB) && text.contains("web-app")) {
+					doctype = null;
+				}
+			}
+
+			if ((doctype == null) || !_normalize(doctype).equals(_normalize(text))) {
+				_changed = true;
+			}
+
+			if (doctype != null) {
+				_xmlStreamWriter.writeDTD(doctype);
+
+				_endPrologEvent();
+			}
+		}
+
+		private void _endElement(String localName) throws IOException, XMLStreamException {
+			_depth--;
+
+			if (_startTag != null) {
+				_startTag._write(_getXMLStreamWriter(), true);
+
+				_startTag = null;
+			}
+			else {
+				_flushWhitespace();
+
+				_getXMLStreamWriter().writeEndElement();
+			}
+
+			if ((_listenerClass != null) && localName.equals("listener-class")) {
+				_heldListenerClass = _listenerClass.toString(
+				).trim();
+
+				_listenerClass = null;
+			}
+
+			if ((_heldXMLStreamWriter != null) && (_depth == 1)) {
+				_release();
+			}
+		}
+
+		private void _endPrologEvent() throws XMLStreamException {
+			if (_depth == 0) {
+				_xmlStreamWriter.writeCharacters("\n");
+			}
+		}
+
+		private void _flush() throws XMLStreamException {
+			_flushStartTag();
+			_flushWhitespace();
+		}
+
+		private void _flushStartTag() throws XMLStreamException {
+			if (_startTag != null) {
+				_startTag._write(_getXMLStreamWriter(), false);
+
+				_startTag = null;
+			}
+		}
+
+		private void _flushWhitespace() throws XMLStreamException {
+			if (_whitespace.length() > 0) {
+				_getXMLStreamWriter().writeCharacters(_whitespace.toString());
+
+				_whitespace.setLength(0);
+			}
+		}
+
+		private XMLStreamWriter _getXMLStreamWriter() {
+			if (_heldXMLStreamWriter != null) {
+				return _heldXMLStreamWriter;
+			}
+
+			return _xmlStreamWriter;
+		}
+
+		private void _hold() throws XMLStreamException {
+			_heldWhitespace = _whitespace.toString();
+
+			_whitespace.setLength(0);
+
+			_heldStringWriter = new StringWriter();
+
+			_heldXMLStreamWriter = _xmlOutputFactory.createXMLStreamWriter(_heldStringWriter);
+
+			_heldListenerClass = null;
+		}
+
+		/**
+		 * Writes the held element out, or drops it together with the
+		 * whitespace before it when it registers an obsolete listener.
+		 */
+		private void _release() throws IOException, XMLStreamException {
+			_heldXMLStreamWriter.flush();
+
+			if ((_heldListenerClass != null) && _obsoleteListeners.contains(_heldListenerClass)) {
+				_changed = true;
+			}
+			else {
+				_xmlStreamWriter.writeCharacters(_heldWhitespace);
+				_xmlStreamWriter.flush();
+
+				_writer.write(_heldStringWriter.toString());
+			}
+
+			_heldListenerClass = null;
+			_heldStringWriter = null;
+			_heldWhitespace = null;
+			_heldXMLStreamWriter = null;
+		}
+
+		private void _rewriteRoot(StartTag startTag) {
+			if ((_type == Type.PORTLET) && startTag._localName.equals("portlet-app")) {
+				Attribute versionAttribute = startTag._getAttribute("", "version");
+
+				if ((versionAttribute == null) || (_compareVersion(versionAttribute._value, "2.0") < 0)) {
+					_rewriteSchema(startTag, _PORTLET_NAMESPACE, _PORTLET_NAMESPACE + " " + _PORTLET_NAMESPACE, "2.0");
+				}
+			}
+			else if ((_type == Type.SPRING_CONTEXT) && startTag._localName.equals("beans")) {
+				Attribute schemaLocationAttribute = startTag._getAttribute(
+					XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation");
+
+				if (schemaLocationAttribute != null) {
+					Matcher matcher = _springSchemaVersionPattern.matcher(schemaLocationAttribute._value);
+
+					if (matcher.find()) {
+						schemaLocationAttribute._value = _normalize(matcher.replaceAll("$1.xsd"));
+
+						_changed = true;
+					}
+				}
+			}
+			else if ((_type == Type.WEB) && startTag._localName.equals("web-app")) {
+				Attribute versionAttribute = startTag._getAttribute("", "version");
+
+				if ((versionAttribute == null) || (_compareVersion(versionAttribute._value, "3.1") < 0)) {
+					_rewriteSchema(
+						startTag, _JAVAEE_NAMESPACE, _JAVAEE_NAMESPACE + " " + _JAVAEE_NAMESPACE + "/web-app_3_1.xsd",
+						"3.1");
+				}
+			}
+		}
+
+		private void _rewriteSchema(StartTag startTag, String namespaceURI, String schemaLocation, String version) {
+			startTag._namespaceURI = namespaceURI;
+
+			startTag._setNamespace("", namespaceURI);
+
+			String xsiPrefix = startTag._getNamespacePrefix(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+
+			if (xsiPrefix == null) {
+				xsiPrefix = "xsi";
+
+				startTag._setNamespace(xsiPrefix, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+			}
+			startTag._setAttribute("", "", "version", version);
+			startTag._setAttribute(
+				xsiPrefix, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation", schemaLocation);
+
+			_changed = true;
+		}
+
+		private void _startElement(StartTag startTag) throws XMLStreamException {
+			_flushStartTag();
+
+			if (_depth == 0) {
+				_rewriteRoot(startTag);
+			}
+
+			if ((_type == Type.WEB) && (_depth == 1) && startTag._localName.equals("listener")) {
+				_hold();
+			}
+			else {
+				_flushWhitespace();
+			}
+
+			if ((_heldXMLStreamWriter != null) && startTag._localName.equals("listener-class")) {
+				_listenerClass = new StringBuilder();
+			}
+
+			_startTag = startTag;
+
+			_depth++;
+		}
+
+		private boolean _changed;
+		private int _depth;
+		private String _heldListenerClass;
+		private StringWriter _heldStringWriter;
+		private String _heldWhitespace;
+		private XMLStreamWriter _heldXMLStreamWriter;
+		private StringBuilder _listenerClass;
+		private StartTag _startTag;
+		private final Type _type;
+		private final StringBuilder _whitespace = new StringBuilder();
+		private final Writer _writer;
+		private final XMLStreamWriter _xmlStreamWriter;
+
+	}
+
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors a source tree into a destination that may also hold files of its
+ * own. Files are copied only when their size or modification time differ
+ * (or their content, when content comparison is on). Content comparison
+ * reads only the destination when the inventory holds the hash of the
+ * source. Files removed from the source since the previous sync are deleted
+ * from the destination, using a manifest of the files that sync wrote. Every
+ * path sync touches is recorded in the given change journal.
+ *
+ * @author Rafael Oliveira
+ */
+public class DirectorySync {
+
+	public DirectorySync(boolean compareContent) {
+		_compareContent = compareContent;
+	}
+
+	/**
+	 * Syncs the files the repository inventory lists below {@code fromPath}
+	 * into {@code toPath}, without walking the source tree again.
+	 */
+	public Result sync(
+			RepositoryInventory repositoryInventory, Path fromPath, Path toPath, Path manifestPath,
+			ChangeJournal changeJournal)
+		throws IOException {
+
+		if (!Files.isDirectory(fromPath)) {
+			throw new NoSuchFileException(fromPath.toString());
+		}
+
+		Result result = new Result();
+
+		Set<String> syncedNames = new LinkedHashSet<>();
+		Set<Path> toDirPaths = new HashSet<>();
+
+		changeJournal.createDirectories(toPath);
+
+		for (RepositoryInventory.Entry entry : repositoryInventory.getEntries(fromPath)) {
+			String name = fromPath.relativize(
+				entry.getPath()
+			).toString();
+
+			syncedNames.add(name);
+
+			Path entryToPath = toPath.resolve(name);
+
+			if (toDirPaths.add(entryToPath.getParent())) {
+				changeJournal.createDirectories(entryToPath.getParent());
+			}
+
+			_syncFile(entry, entryToPath, result, changeJournal);
+		}
+
+		for (String name : _readManifest(manifestPath)) {
+			if (!syncedNames.contains(name) && Files.deleteIfExists(toPath.resolve(name))) {
+				changeJournal.deleted(toPath.resolve(name));
+
+				result._filesDeleted++;
+			}
+		}
+
+		Files.createDirectories(manifestPath.getParent());
+
+		Files.write(manifestPath, syncedNames, StandardCharsets.UTF_8);
+
+		return result;
+	}
+
+	public static class Result {
+
+		public long getBytesCopied() {
+			return _bytesCopied;
+		}
+
+		public long getBytesSaved() {
+			return _bytesSaved;
+		}
+
+		public int getFilesCopied() {
+			return _filesCopied;
+		}
+
+		public int getFilesDeleted() {
+			return _filesDeleted;
+		}
+
+		public int getFilesUnchanged() {
+			return _filesUnchanged;
+		}
+
+		private long _bytesCopied;
+		private long _bytesSaved;
+		private int _filesCopied;
+		private int _filesDeleted;
+		private int _filesUnchanged;
+
+	}
+
+	private static boolean _contentEquals(Path path1, Path path2) throws IOException {
+		byte[] buffer1 = new byte[8192];
+		byte[] buffer2 = new byte[8192];
+
+		try (InputStream inputStream1 = new BufferedInputStream(Files.newInputStream(path1));
+			InputStream inputStream2 = new BufferedInputStream(Files.newInputStream(path2))) {
+
+			while (true) {
+				int read1 = inputStream1.readNBytes(buffer1, 0, buffer1.length);
+				int read2 = inputStream2.readNBytes(buffer2, 0, buffer2.length);
+
+				if ((read1 != read2) ||
+					!Arrays.equals(buffer1, 0, read1, buffer2, 0, read2)) {
+
+					return false;
+				}
+
+				if (read1 < buffer1.length) {
+					return true;
+				}
+			}
+		}
+	}
+
+	private static byte[] _digest(Path path) throws IOException {
+		MessageDigest messageDigest;
+
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException(nsae);
+		}
+
+		byte[] buffer = new byte[8192];
+
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			int read;
+
+			while ((read = inputStream.read(buffer)) != -1) {
+				messageDigest.update(buffer, 0, read);
+			}
+		}
+
+		return messageDigest.digest();
+	}
+
+	/**
+	 * Copying a file with its attributes keeps its modification time only to
+	 * the microsecond on some platforms, so times are compared at that
+	 * precision.
+	 */
+	private static boolean _isSameTime(FileTime fileTime1, FileTime fileTime2) {
+		return fileTime1.to(TimeUnit.MICROSECONDS) == fileTime2.to(TimeUnit.MICROSECONDS);
+	}
+
+	private static Set<String> _readManifest(Path manifestPath) throws IOException {
+		if (!Files.exists(manifestPath)) {
+			return Collections.emptySet();
+		}
+
+		return new LinkedHashSet<>(Files.readAllLines(manifestPath, StandardCharsets.UTF_8));
+	}
+
+	private boolean _isUnchanged(RepositoryInventory.Entry entry, Path toPath) throws IOException {
+		if (!Files.isRegularFile(toPath)) {
+			return false;
+		}
+
+		BasicFileAttributes toAttributes = Files.readAttributes(toPath, BasicFileAttributes.class);
+
+		if (entry.getSize() != toAttributes.size()) {
+			return false;
+		}
+
+		if (!_compareContent) {
+			return _isSameTime(entry.getLastModifiedTime(), toAttributes.lastModifiedTime());
+		}
+
+		if (entry.getHash() != null) {
+			if (!entry.hasHash(_digest(toPath))) {
+				return false;
+			}
+		}
+		else if (!_contentEquals(entry.getPath(), toPath)) {
+			return false;
+		}
+
+		if (!_isSameTime(entry.getLastModifiedTime(), toAttributes.lastModifiedTime())) {
+			Files.setLastModifiedTime(toPath, entry.getLastModifiedTime());
+		}
+
+		return true;
+	}
+
+	private void _syncFile(RepositoryInventory.Entry entry, Path toPath, Result result, ChangeJournal changeJournal)
+		throws IOException {
+
+		if (_isUnchanged(entry, toPath)) {
+			result._bytesSaved += entry.getSize();
+			result._filesUnchanged++;
+
+			return;
+		}
+
+		boolean exists = Files.exists(toPath);
+
+		Files.copy(
+			entry.getPath(), toPath, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+
+		if (exists) {
+			changeJournal.modified(toPath);
+		}
+		else {
+			changeJournal.created(toPath);
+		}
+
+		result._bytesCopied += entry.getSize();
+		result._filesCopied++;
+	}
+
+	private final boolean _compareContent;
+
+}
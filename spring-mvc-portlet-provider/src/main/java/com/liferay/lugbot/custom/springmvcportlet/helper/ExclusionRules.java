@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Exclusion patterns in {@code .gitignore} syntax, compiled once. Patterns
+ * without wildcards are matched with set lookups on the file name or the
+ * relative path, the others with a precompiled regular expression. As in
+ * git, the last matching pattern wins, a leading {@code !} re-includes and a
+ * trailing {@code /} only matches directories. Paths are relative to the
+ * repository and separated by {@code /}.
+ *
+ * @author Gregory Amerson
+ */
+public class ExclusionRules {
+
+	/**
+	 * The default patterns. The {@code build} and {@code target} patterns are
+	 * anchored to the repository root so that Java packages with those names
+	 * are kept; {@link RepositoryInventory} also skips those directories next
+	 * to a build file in nested projects.
+	 */
+	public static final List<String> DEFAULT_PATTERNS = Collections.unmodifiableList(
+		Arrays.asList(
+			".gradle/", "/build/", "/target/", "bower_components/", "node_modules/", "**/WEB-INF/lib/*.jar/"));
+
+	public static final ExclusionRules NONE = new ExclusionRules(Collections.emptyList());
+
+	public static ExclusionRules compile(Collection<String> patterns) {
+		return NONE.withPatterns("", patterns);
+	}
+
+	/**
+	 * Returns whether {@code relativePath} is excluded. The parents of the
+	 * path are not checked; walkers prune excluded directories instead.
+	 */
+	public boolean isExcluded(String relativePath, boolean directory) {
+		if (_rules.isEmpty()) {
+			return false;
+		}
+
+		String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+
+		if (!_negated) {
+			if (_names.contains(name) || _paths.contains(relativePath)) {
+				return true;
+			}
+
+			if (directory && (_dirNames.contains(name) || _dirPaths.contains(relativePath))) {
+				return true;
+			}
+
+			for (Rule rule : _globRules) {
+				if (rule.matches(relativePath, name, directory)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		for (int i = _rules.size() - 1; i >= 0; i--) {
+			Rule rule = _rules.get(i);
+
+			if (rule.matches(relativePath, name, directory)) {
+				return !rule._negated;
+			}
+		}
+
+		return false;
+	}
+
+	public boolean isEmpty() {
+		return _rules.isEmpty();
+	}
+
+	/**
+	 * Returns these rules followed by {@code patterns}, read from the
+	 * {@code .gitignore} of {@code baseDir}, so they take precedence.
+	 */
+	public ExclusionRules withPatterns(String baseDir, Collection<String> patterns) {
+		List<Rule> rules = new ArrayList<>(_rules);
+
+		for (String pattern : patterns) {
+			Rule rule = _compile(baseDir, pattern);
+
+			if (rule != null) {
+				rules.add(rule);
+			}
+		}
+
+		if (rules.size() == _rules.size()) {
+			return this;
+		}
+
+		return new ExclusionRules(rules);
+	}
+
+	private static Rule _compile(String baseDir, String pattern) {
+		String value = pattern.trim();
+
+		if (value.isEmpty() || value.startsWith("#")) {
+			return null;
+		}
+
+		boolean negated = false;
+
+		if (value.startsWith("!")) {
+			negated = true;
+
+			value = value.substring(1);
+		}
+		else if (value.startsWith("\\")) {
+			value = value.substring(1);
+		}
+
+		boolean directory = false;
+
+		while (value.endsWith("/")) {
+			directory = true;
+
+			value = value.substring(0, value.length() - 1);
+		}
+
+		if (value.isEmpty()) {
+			return null;
+		}
+
+		boolean anchored = value.indexOf('/') >= 0;
+
+		if (value.startsWith("/")) {
+			value = value.substring(1);
+		}
+
+		String prefix = baseDir.isEmpty() ? "" : baseDir + "/";
+
+		if (!_hasWildcard(value)) {
+			return new Rule(anchored ? prefix + value : value, null, prefix, anchored, directory, negated);
+		}
+
+		return new Rule(value, Pattern.compile(_toRegex(value)), prefix, anchored, directory, negated);
+	}
+
+	private static boolean _hasWildcard(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			if ((c == '*') || (c == '?') || (c == '[') || (c == '\\')) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static String _toRegex(String glob) {
+		StringBuilder sb = new StringBuilder();
+
+		int length = glob.length();
+
+		for (int i = 0; i < length; i++) {
+			char c = glob.charAt(i);
+
+			if (c == '*') {
+				if (((i + 1) < length) && (glob.charAt(i + 1) == '*')) {
+					boolean leading = (i == 0) || (glob.charAt(i - 1) == '/');
+
+					i++;
+
+					if (leading && ((i + 1) < length) && (glob.charAt(i + 1) == '/')) {
+						sb.append("(?:.*/)?");
+
+						i++;
+					}
+					else {
+						sb.append(".*");
+					}
+				}
+				else {
+					sb.append("[^/]*");
+				}
+			}
+			else if (c == '?') {
+				sb.append("[^/]");
+			}
+			else if (c == '[') {
+				int end = glob.indexOf(']', i + 2);
+
+				if (end < 0) {
+					sb.append("\\[");
+
+					continue;
+				}
+
+				String characterClass = glob.substring(i + 1, end);
+
+				if (characterClass.startsWith("!")) {
+					characterClass = "^" + characterClass.substring(1);
+				}
+
+				sb.append('[');
+				sb.append(characterClass.replace("\\", "\\\\"));
+				sb.append(']');
+
+				i = end;
+			}
+			else if ((c == '\\') && ((i + 1) < length)) {
+				sb.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+			}
+			else if ("\\.^$|+(){}".indexOf(c) >= 0) {
+				sb.append('\\');
+				sb.append(c);
+			}
+			else {
+				sb.append(c);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private ExclusionRules(List<Rule> rules) {
+		_rules = rules;
+
+		boolean negated = false;
+
+		for (Rule rule : rules) {
+			if (rule._negated) {
+				negated = true;
+			}
+			else if ((rule._pattern != null) || (!rule._anchored && !rule._prefix.isEmpty())) {
+				_globRules.add(rule);
+			}
+			else if (rule._anchored) {
+				(rule._directory ? _dirPaths : _paths).add(rule._value);
+			}
+			else {
+				(rule._directory ? _dirNames : _names).add(rule._value);
+			}
+		}
+
+		_negated = negated;
+	}
+
+	private final Set<String> _dirNames = new HashSet<>();
+	private final Set<String> _dirPaths = new HashSet<>();
+	private final List<Rule> _globRules = new ArrayList<>();
+	private final Set<String> _names = new HashSet<>();
+	private final boolean _negated;
+	private final Set<String> _paths = new HashSet<>();
+	private final List<Rule> _rules;
+
+	private static class Rule {
+
+		private Rule(String value, Pattern pattern, String prefix, boolean anchored, boolean directory, boolean negated) {
+			_value = value;
+			_pattern = pattern;
+			_prefix = prefix;
+			_anchored = anchored;
+			_directory = directory;
+			_negated = negated;
+		}
+
+		private boolean matches(String relativePath, String name, boolean directory) {
+			if (_directory && !directory) {
+				return false;
+			}
+
+			if (!relativePath.startsWith(_prefix)) {
+				return false;
+			}
+
+			if (_pattern == null) {
+				return _anchored ? relativePath.equals(_value) : name.equals(_value);
+			}
+
+			if (_anchored) {
+				return _pattern.matcher(
+					relativePath.substring(_prefix.length())
+				).matches();
+			}
+
+			return _pattern.matcher(
+				name
+			).matches();
+		}
+
+		private final boolean _anchored;
+		private final boolean _directory;
+		private final boolean _negated;
+		private final Pattern _pattern;
+		private final String _prefix;
+		private final String _value;
+
+	}
+
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The bytes of a file read by {@link FileFunctions#readContent}, either
+ * memory-mapped or read into a buffer of the exact file size. The charset is
+ * detected on first use from the byte order mark, falling back to
+ * ISO-8859-1 when the content is not valid UTF-8.
+ *
+ * @author Gregory Amerson
+ */
+public class FileContent {
+
+	public FileContent(ByteBuffer byteBuffer) {
+		_byteBuffer = byteBuffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns the text without the byte order mark. Single byte content,
+	 * which is ISO-8859-1 or plain ASCII, is viewed in place; anything else is
+	 * decoded into a {@code CharBuffer}, never into a {@code String}.
+	 */
+	public CharSequence asCharSequence() {
+		Charset charset = getCharset();
+
+		ByteBuffer byteBuffer = getByteBuffer();
+
+		byteBuffer.position(_bomLength);
+
+		if (charset.equals(StandardCharsets.ISO_8859_1) || _ascii) {
+			return new ByteCharSequence(byteBuffer.slice());
+		}
+
+		return charset.decode(byteBuffer);
+	}
+
+	/**
+	 * Returns a new read-only view of the whole content, including the byte
+	 * order mark.
+	 */
+	public ByteBuffer getByteBuffer() {
+		return _byteBuffer.duplicate();
+	}
+
+	/**
+	 * Returns the length of the byte order mark, zero when there is none.
+	 */
+	public int getBomLength() {
+		getCharset();
+
+		return _bomLength;
+	}
+
+	/**
+	 * Returns the detected charset. The detection runs once, even when
+	 * several threads share the content.
+	 */
+	public Charset getCharset() {
+		Charset charset = _charset;
+
+		if (charset == null) {
+			synchronized (this) {
+				if (_charset == null) {
+					_detectCharset();
+				}
+
+				charset = _charset;
+			}
+		}
+
+		return charset;
+	}
+
+	public int getSize() {
+		return _byteBuffer.capacity();
+	}
+
+	@Override
+	public String toString() {
+		return asCharSequence().toString();
+	}
+
+	private static boolean _isUTF8(ByteBuffer byteBuffer, int start) {
+		int limit = byteBuffer.limit();
+
+		for (int i = start; i < limit;) {
+			int b = byteBuffer.get(i) & 0xFF;
+
+			int length;
+
+			if (b < 0x80) {
+				i++;
+
+				continue;
+			}
+			else if ((b >= 0xC2) && (b <= 0xDF)) {
+				length = 1;
+			}
+			else if ((b >= 0xE0) && (b <= 0xEF)) {
+				length = 2;
+			}
+			else if ((b >= 0xF0) && (b <= 0xF4)) {
+				length = 3;
+			}
+			else {
+				return false;
+			}
+
+			if ((i + length) >= limit) {
+				return false;
+			}
+
+			for (int j = 1; j <= length; j++) {
+				if ((byteBuffer.get(i + j) & 0xC0) != 0x80) {
+					return false;
+				}
+			}
+
+			i += length + 1;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Detects the charset and publishes it last, so a thread that sees the
+	 * charset also sees the fields it was derived with.
+	 */
+	private void _detectCharset() {
+		int size = getSize();
+
+		int b0 = (size > 0) ? (_byteBuffer.get(0) & 0xFF) : -1;
+		int b1 = (size > 1) ? (_byteBuffer.get(1) & 0xFF) : -1;
+		int b2 = (size > 2) ? (_byteBuffer.get(2) & 0xFF) : -1;
+
+		boolean ascii = false;
+		int bomLength = 0;
+		Charset charset;
+
+		if ((b0 == 0xEF) && (b1 == 0xBB) && (b2 == 0xBF)) {
+			bomLength = 3;
+			charset = StandardCharsets.UTF_8;
+		}
+		else if ((b0 == 0xFE) && (b1 == 0xFF)) {
+			bomLength = 2;
+			charset = StandardCharsets.UTF_16BE;
+		}
+		else if ((b0 == 0xFF) && (b1 == 0xFE)) {
+			bomLength = 2;
+			charset = StandardCharsets.UTF_16LE;
+		}
+		else {
+			ascii = true;
+
+			for (int i = 0; i < size; i++) {
+				if (_byteBuffer.get(i) < 0) {
+					ascii = false;
+
+					break;
+				}
+			}
+
+			if (ascii || _isUTF8(_byteBuffer, 0)) {
+				charset = StandardCharsets.UTF_8;
+			}
+			else {
+				charset = StandardCharsets.ISO_8859_1;
+			}
+		}
+
+		_ascii = ascii;
+		_bomLength = bomLength;
+		_charset = charset;
+	}
+
+	private boolean _ascii;
+	private int _bomLength;
+	private final ByteBuffer _byteBuffer;
+	private volatile Charset _charset;
+
+	private static class ByteCharSequence implements CharSequence {
+
+		@Override
+		public char charAt(int index) {
+			return (char)(_byteBuffer.get(index) & 0xFF);
+		}
+
+		@Override
+		public int length() {
+			return _byteBuffer.limit();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			ByteBuffer byteBuffer = _byteBuffer.duplicate();
+
+			byteBuffer.position(start);
+			byteBuffer.limit(end);
+
+			return new ByteCharSequence(byteBuffer.slice());
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes = new byte[length()];
+
+			_byteBuffer.duplicate(
+			).get(
+				bytes
+			);
+
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+
+		private ByteCharSequence(ByteBuffer byteBuffer) {
+			_byteBuffer = byteBuffer;
+		}
+
+		private final ByteBuffer _byteBuffer;
+
+	}
+
+}
@@ -20,11 +20,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 
 import java.util.List;
@@ -37,6 +41,8 @@ import java.util.stream.Stream;
  */
 public class FileFunctions {
 
+	public static final long MMAP_THRESHOLD = 1024 * 1024;
+
 	public static void copyFile(Path srcPath, Path destPath) throws IOException {
 		if ((srcPath == null) || (destPath == null)) {
 			return;
@@ -160,32 +166,51 @@ public class FileFunctions {
 	}
 
 	public static String read(InputStream inputStream) throws IOException {
-		byte[] buffer = new byte[8192];
-		int offset = 0;
+		return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+	}
 
-		while (true) {
-			int count = inputStream.read(buffer, offset, buffer.length - offset);
+	/**
+	 * Reads a file as text in its detected charset.
+	 */
+	public static String read(Path path) throws IOException {
+		return readContent(
+			path, Long.MAX_VALUE
+		).toString();
+	}
 
-			if (count == -1) {
-				break;
+	/**
+	 * Reads a file with a single exact-size read, or maps it into memory when
+	 * it is at least {@link #MMAP_THRESHOLD} bytes. Files larger than
+	 * {@code maxSize} are not read at all.
+	 */
+	public static FileContent readContent(Path path, long maxSize) throws IOException {
+		try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = fileChannel.size();
+
+			if (size > maxSize) {
+				throw new FileTooLargeException(path, size, maxSize);
 			}
 
-			offset += count;
+			if (size > Integer.MAX_VALUE) {
+				throw new FileTooLargeException(path, size, Integer.MAX_VALUE);
+			}
 
-			if (offset == buffer.length) {
-				byte[] newBuffer = new byte[buffer.length << 1];
+			if (size >= MMAP_THRESHOLD) {
+				return new FileContent(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+			}
 
-				System.arraycopy(buffer, 0, newBuffer, 0, buffer.length);
+			ByteBuffer byteBuffer = ByteBuffer.allocate((int)size);
 
-				buffer = newBuffer;
+			while (byteBuffer.hasRemaining()) {
+				if (fileChannel.read(byteBuffer) < 0) {
+					break;
+				}
 			}
-		}
 
-		if (offset == 0) {
-			return "";
-		}
+			byteBuffer.flip();
 
-		return new String(buffer, 0, offset, "UTF-8");
+			return new FileContent(byteBuffer.slice());
+		}
 	}
 
 	public static String removeExtension(String name) {
@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.IOException;
+
+import java.nio.file.Path;
+
+/**
+ * Thrown instead of reading a file that is larger than the caller allows.
+ *
+ * @author Gregory Amerson
+ */
+public class FileTooLargeException extends IOException {
+
+	public FileTooLargeException(Path path, long size, long maxSize) {
+		super(path + " has " + size + " bytes, more than the maximum of " + maxSize);
+
+		_size = size;
+	}
+
+	public long getSize() {
+		return _size;
+	}
+
+	private final long _size;
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Detects generated sources by looking for marker strings in the first bytes
+ * of a file. Only a bounded header window is read and the markers are
+ * matched against the raw bytes, so the file is never decoded.
+ *
+ * <p>
+ * By default only the {@code * @generated} javadoc tag marks a file as
+ * generated. Broader markers such as {@code DO NOT EDIT} also occur in
+ * license headers and hand-written copies of generated classes, so they are
+ * only used when configured through {@code generated.markers}.
+ * </p>
+ *
+ * @author Gregory Amerson
+ */
+public class GeneratedSourceDetector {
+
+	public static final List<String> DEFAULT_MARKERS = Collections.singletonList("* @generated");
+
+	public static final int DEFAULT_HEADER_SIZE = 16 * 1024;
+
+	public GeneratedSourceDetector(Collection<String> markers, int headerSize) {
+		_markers = markers.stream(
+		).filter(
+			marker -> !marker.isEmpty()
+		).map(
+			marker -> marker.getBytes(StandardCharsets.UTF_8)
+		).toArray(
+			byte[][]::new
+		);
+
+		_headerSize = headerSize;
+
+		_buffer = ThreadLocal.withInitial(() -> new byte[_headerSize]);
+	}
+
+	public boolean isGenerated(FileContent fileContent) {
+		byte[] buffer = _buffer.get();
+
+		int length = Math.min(buffer.length, fileContent.getSize());
+
+		fileContent.getByteBuffer(
+		).get(
+			buffer, 0, length
+		);
+
+		return _isGenerated(buffer, length);
+	}
+
+	public boolean isGenerated(Path path) throws IOException {
+		byte[] buffer = _buffer.get();
+
+		int length;
+
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			length = inputStream.readNBytes(buffer, 0, buffer.length);
+		}
+
+		return _isGenerated(buffer, length);
+	}
+
+	private static int _indexOf(byte[] bytes, int length, byte[] marker) {
+		byte first = marker[0];
+
+		int max = length - marker.length;
+
+		for (int i = 0; i <= max; i++) {
+			if (bytes[i] != first) {
+				continue;
+			}
+
+			int j = 1;
+
+			while ((j < marker.length) && (bytes[i + j] == marker[j])) {
+				j++;
+			}
+
+			if (j == marker.length) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private boolean _isGenerated(byte[] buffer, int length) {
+		for (byte[] marker : _markers) {
+			if (_indexOf(buffer, length, marker) >= 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private final ThreadLocal<byte[]> _buffer;
+	private final int _headerSize;
+	private final byte[][] _markers;
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The {@code .lugbot} directory of a repository holds state the providers
+ * keep between runs. It ignores itself so it never ends up in a commit.
+ *
+ * @author Gregory Amerson
+ */
+public class LugbotWorkDir {
+
+	public static final String NAME = ".lugbot";
+
+	public static Path resolve(Path repoPath, String name) throws IOException {
+		Path lugbotPath = repoPath.resolve(NAME);
+
+		Files.createDirectories(lugbotPath);
+
+		Path gitignorePath = lugbotPath.resolve(".gitignore");
+
+		if (!Files.exists(gitignorePath)) {
+			Files.write(gitignorePath, "*\n".getBytes(StandardCharsets.UTF_8));
+		}
+
+		return lugbotPath.resolve(name);
+	}
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a list of tasks on a shared executor, at most {@code parallelism} of
+ * them at a time. The calling thread works through the tasks as well and
+ * runs every task no pool thread has picked up yet. A task may therefore run
+ * tasks of its own on the same executor without starving it, and a busy or
+ * saturated executor only means the caller does more of the work itself.
+ *
+ * @author Gregory Amerson
+ */
+public class ParallelTasks {
+
+	/**
+	 * Runs the tasks and waits for all of them. The returned futures are
+	 * done and in the order of the tasks.
+	 */
+	public static <T> List<Future<T>> invokeAll(
+			Executor executor, int parallelism, List<? extends Callable<T>> callables)
+		throws InterruptedException {
+
+		List<FutureTask<T>> futureTasks = new ArrayList<>(callables.size());
+
+		for (Callable<T> callable : callables) {
+			futureTasks.add(new FutureTask<>(callable));
+		}
+
+		AtomicInteger nextIndex = new AtomicInteger();
+
+		Runnable worker = () -> {
+			int index;
+
+			while ((index = nextIndex.getAndIncrement()) < futureTasks.size()) {
+				futureTasks.get(
+					index
+				).run();
+			}
+		};
+
+		int helpers = Math.min(Math.max(1, parallelism), futureTasks.size()) - 1;
+
+		try {
+			for (int i = 0; i < helpers; i++) {
+				try {
+					executor.execute(worker);
+				}
+				catch (RejectedExecutionException ree) {
+					break;
+				}
+			}
+
+			worker.run();
+
+			for (FutureTask<T> futureTask : futureTasks) {
+				try {
+					futureTask.get();
+				}
+				catch (CancellationException | ExecutionException e) {
+				}
+			}
+		}
+		catch (InterruptedException ie) {
+			nextIndex.set(futureTasks.size());
+
+			for (FutureTask<T> futureTask : futureTasks) {
+				futureTask.cancel(true);
+			}
+
+			throw ie;
+		}
+
+		return new ArrayList<>(futureTasks);
+	}
+
+	/**
+	 * Runs the tasks like {@link #invokeAll(Executor, int, List)} and returns
+	 * their results, or throws the failure of the first task that failed.
+	 */
+	public static <T> List<T> invokeAllOrFail(
+			Executor executor, int parallelism, List<? extends Callable<T>> callables)
+		throws ExecutionException, InterruptedException {
+
+		List<T> results = new ArrayList<>(callables.size());
+
+		for (Future<T> future : invokeAll(executor, parallelism, callables)) {
+			results.add(future.get());
+		}
+
+		return results;
+	}
+
+}
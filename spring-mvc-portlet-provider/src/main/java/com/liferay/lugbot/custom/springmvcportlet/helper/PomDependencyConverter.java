@@ -0,0 +1,471 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import com.liferay.lugbot.custom.springmvcportlet.metrics.RunSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Carries the dependencies of a Maven {@code pom.xml} over to the
+ * {@code build.gradle} of a module. The pom is read in one streaming pass,
+ * every dependency is looked up in the dependency index, and the resulting
+ * lines are added to the top-level {@code dependencies} block unless the
+ * build already declares the same group and name. Dependencies the index
+ * does not know are carried over with the configuration that matches their
+ * Maven scope, and commented out when their version cannot be resolved. The build file keeps its charset and byte order mark.
+ *
+ * @author Gregory Amerson
+ */
+public class PomDependencyConverter {
+
+	public PomDependencyConverter(DependencyIndex dependencyIndex) {
+		_dependencyIndex = dependencyIndex;
+
+		_xmlInputFactory = XMLInputFactory.newInstance();
+
+		_xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		_xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	}
+
+	/**
+	 * Adds the dependencies of the pom to the build file, creating it when
+	 * needed, and returns whether the build file changed.
+	 */
+	public boolean convert(Path pomPath, Path buildGradlePath, RunSummary runSummary)
+		throws IOException, XMLStreamException {
+
+		List<String> lines = new ArrayList<>();
+		String lineSeparator = "\n";
+
+		ByteBuffer bom = ByteBuffer.allocate(0);
+		Charset charset = StandardCharsets.UTF_8;
+
+		if (Files.exists(buildGradlePath)) {
+			FileContent fileContent = FileFunctions.readContent(buildGradlePath, Long.MAX_VALUE);
+
+			charset = fileContent.getCharset();
+
+			bom = fileContent.getByteBuffer();
+
+			bom.limit(fileContent.getBomLength());
+
+			String buildGradle = fileContent.toString();
+
+			if (buildGradle.contains("\r\n")) {
+				lineSeparator = "\r\n";
+			}
+
+			for (String line : buildGradle.split("\r?\n", -1)) {
+				lines.add(line);
+			}
+		}
+
+		Set<String> declaredDependencies = _getDeclaredDependencies(lines);
+
+		List<String> dependencyLines = new ArrayList<>();
+
+		for (Dependency dependency : _readDependencies(pomPath)) {
+			String line = _toDependencyLine(dependency, runSummary);
+
+			if (line == null) {
+				continue;
+			}
+
+			Matcher matcher = _groupNamePattern.matcher(line);
+
+			matcher.find();
+
+			if (declaredDependencies.add(matcher.group(1) + ":" + matcher.group(2))) {
+				dependencyLines.add(line);
+			}
+			else {
+				runSummary.increment("dependencies already declared");
+			}
+		}
+
+		if (dependencyLines.isEmpty()) {
+			return false;
+		}
+
+		_addDependencyLines(lines, dependencyLines);
+
+		try (FileChannel fileChannel = FileChannel.open(
+				buildGradlePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+
+			fileChannel.write(new ByteBuffer[] {bom, charset.encode(String.join(lineSeparator, lines))});
+		}
+
+		return true;
+	}
+
+	/**
+	 * Inserts the lines before the closing brace of the top-level
+	 * {@code dependencies} block, or appends a new block. Braces inside
+	 * comments and string literals do not count toward the nesting depth.
+	 */
+	private static void _addDependencyLines(List<String> lines, List<String> dependencyLines) {
+		boolean blockComment = false;
+		int depth = 0;
+		int dependenciesDepth = -1;
+		String quote = null;
+
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+
+			if ((depth == 0) && !blockComment && (quote == null) &&
+				_dependenciesPattern.matcher(
+					line
+				).matches()) {
+
+				dependenciesDepth = depth;
+			}
+
+			for (int j = 0; j < line.length(); j++) {
+				char c = line.charAt(j);
+
+				if (blockComment) {
+					if (line.startsWith("*/", j)) {
+						blockComment = false;
+
+						j++;
+					}
+				}
+				else if (quote != null) {
+					if (c == '\\') {
+						j++;
+					}
+					else if (line.startsWith(quote, j)) {
+						j += quote.length() - 1;
+
+						quote = null;
+					}
+				}
+				else if (line.startsWith("//", j)) {
+					break;
+				}
+				else if (line.startsWith("/*", j)) {
+					blockComment = true;
+
+					j++;
+				}
+				else if ((c == '"') || (c == '\'')) {
+					quote = String.valueOf(c);
+
+					if (line.startsWith(quote + quote + quote, j)) {
+						quote = quote + quote + quote;
+					}
+
+					j += quote.length() - 1;
+				}
+				else if (c == '{') {
+					depth++;
+				}
+				else if (c == '}') {
+					depth--;
+
+					if ((dependenciesDepth >= 0) && (depth == dependenciesDepth)) {
+						lines.addAll(i, dependencyLines);
+
+						return;
+					}
+				}
+			}
+
+			if ((quote != null) && (quote.length() == 1)) {
+				quote = null;
+			}
+		}
+
+		if (!lines.isEmpty() && !lines.get(
+				lines.size() - 1
+			).isEmpty()) {
+
+			lines.add("");
+		}
+
+		lines.add("dependencies {");
+		lines.addAll(dependencyLines);
+		lines.add("}");
+		lines.add("");
+	}
+
+	private static Set<String> _getDeclaredDependencies(List<String> lines) {
+		Set<String> declaredDependencies = new HashSet<>();
+
+		for (String line : lines) {
+			Matcher matcher = _groupNamePattern.matcher(line);
+
+			if (matcher.find()) {
+				declaredDependencies.add(matcher.group(1) + ":" + matcher.group(2));
+
+				continue;
+			}
+
+			matcher = _coordinatesPattern.matcher(line);
+
+			if (matcher.find()) {
+				declaredDependencies.add(matcher.group(1) + ":" + matcher.group(2));
+			}
+		}
+
+		return declaredDependencies;
+	}
+
+	private static String _resolve(String value, Map<String, String> properties) {
+		if (value == null) {
+			return null;
+		}
+
+		Matcher matcher = _propertyPattern.matcher(value);
+
+		StringBuffer sb = new StringBuffer();
+
+		while (matcher.find()) {
+			String propertyValue = properties.get(matcher.group(1));
+
+			if (propertyValue == null) {
+				return null;
+			}
+
+			matcher.appendReplacement(sb, Matcher.quoteReplacement(propertyValue));
+		}
+
+		matcher.appendTail(sb);
+
+		return sb.toString();
+	}
+
+	private static String _toDependencyLine(String configuration, String group, String name, String version) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append('\t');
+		sb.append(configuration);
+		sb.append(" group: \"");
+		sb.append(group);
+		sb.append("\", name: \"");
+		sb.append(name);
+		sb.append('"');
+
+		if (version != null) {
+			sb.append(", version: \"");
+			sb.append(version);
+			sb.append('"');
+		}
+
+		return sb.toString();
+	}
+
+	private static String _toConfiguration(String scope) {
+		if (scope == null) {
+			return "compile";
+		}
+
+		switch (scope) {
+			case "provided":
+			case "system":
+				return "compileOnly";
+			case "runtime":
+				return "runtime";
+			case "test":
+				return "testCompile";
+			default:
+				return "compile";
+		}
+	}
+
+	/**
+	 * Reads the dependencies of the project, leaving out those of dependency
+	 * management and of plugins, with their versions resolved against the
+	 * properties of the pom.
+	 */
+	private List<Dependency> _readDependencies(Path pomPath) throws IOException, XMLStreamException {
+		List<Dependency> dependencies = new ArrayList<>();
+		Map<String, String> properties = new HashMap<>();
+
+		try (InputStream inputStream = Files.newInputStream(pomPath)) {
+			XMLStreamReader xmlStreamReader = _xmlInputFactory.createXMLStreamReader(inputStream);
+
+			try {
+				Deque<String> elementNames = new ArrayDeque<>();
+				Dependency dependency = null;
+				StringBuilder text = new StringBuilder();
+
+				while (xmlStreamReader.hasNext()) {
+					switch (xmlStreamReader.next()) {
+						case XMLStreamConstants.CDATA:
+						case XMLStreamConstants.CHARACTERS:
+							text.append(xmlStreamReader.getText());
+
+							break;
+						case XMLStreamConstants.END_ELEMENT:
+							String elementPath = String.join("/", elementNames);
+							String value = text.toString(
+							).trim();
+
+							if (elementPath.equals("dependency/dependencies/project")) {
+								dependencies.add(dependency);
+
+								dependency = null;
+							}
+							else if ((dependency != null) && (elementNames.size() == 4)) {
+								dependency._set(xmlStreamReader.getLocalName(), value);
+							}
+							else if (elementPath.equals("version/project")) {
+								properties.put("project.version", value);
+							}
+							else if ((elementNames.size() == 3) && elementPath.endsWith("/properties/project")) {
+								properties.put(xmlStreamReader.getLocalName(), value);
+							}
+
+							elementNames.pop();
+
+							text.setLength(0);
+
+							break;
+						case XMLStreamConstants.START_ELEMENT:
+							elementNames.push(xmlStreamReader.getLocalName());
+
+							if (String.join(
+									"/", elementNames
+								).equals(
+									"dependency/dependencies/project"
+								)) {
+
+								dependency = new Dependency();
+							}
+
+							text.setLength(0);
+
+							break;
+					}
+				}
+			}
+			finally {
+				xmlStreamReader.close();
+			}
+		}
+
+		for (Dependency dependency : dependencies) {
+			dependency._version = _resolve(dependency._version, properties);
+		}
+
+		return dependencies;
+	}
+
+	private String _toDependencyLine(Dependency dependency, RunSummary runSummary) {
+		if ((dependency._groupId == null) || (dependency._artifactId == null)) {
+			return null;
+		}
+
+		DependencyIndex.Mapping mapping = _dependencyIndex.get(dependency._groupId, dependency._artifactId);
+
+		if (mapping == null) {
+			runSummary.increment("dependencies unmapped");
+
+			String line = _toDependencyLine(
+				_toConfiguration(dependency._scope), dependency._groupId, dependency._artifactId,
+				dependency._version);
+
+			if (dependency._version == null) {
+				runSummary.increment("dependencies unresolved");
+
+				return "\t// " + line.trim() + " (version unresolved)";
+			}
+
+			return line;
+		}
+
+		if (mapping.isDropped()) {
+			runSummary.increment("dependencies dropped");
+
+			return null;
+		}
+
+		runSummary.increment("dependencies mapped");
+
+		return _toDependencyLine(
+			mapping.getConfiguration(), mapping.getGroup(), mapping.getName(), mapping.getVersion());
+	}
+
+	private static final Pattern _coordinatesPattern = Pattern.compile("[\"']([^\"':\\s]+):([^\"':\\s]+)[:\"']");
+	private static final Pattern _dependenciesPattern = Pattern.compile("\\s*dependencies\\s*\\{\\s*");
+	private static final Pattern _groupNamePattern = Pattern.compile(
+		"group:\\s*[\"']([^\"']+)[\"']\\s*,\\s*name:\\s*[\"']([^\"']+)[\"']");
+	private static final Pattern _propertyPattern = Pattern.compile("\\$\\{([^}]+)}");
+
+	private final DependencyIndex _dependencyIndex;
+	private final XMLInputFactory _xmlInputFactory;
+
+	private static class Dependency {
+
+		private void _set(String name, String value) {
+			switch (name) {
+				case "artifactId":
+					_artifactId = value;
+
+					break;
+				case "groupId":
+					_groupId = value;
+
+					break;
+				case "scope":
+					_scope = value;
+
+					break;
+				case "version":
+					_version = value;
+
+					break;
+			}
+		}
+
+		private String _artifactId;
+		private String _groupId;
+		private String _scope;
+		private String _version;
+
+	}
+
+}
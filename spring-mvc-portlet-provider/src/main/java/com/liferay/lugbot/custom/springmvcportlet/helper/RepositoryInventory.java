@@ -0,0 +1,842 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Inventory of the regular files of a repository with their extension, size,
+ * modification time, generated flag and SHA-256 content hash. A scan lists
+ * the directories of each level in parallel, prunes the directories the
+ * exclusion rules and {@code .gitignore} files exclude, and only reads the
+ * files whose size or modification time changed since the previous scan.
+ * Between scans the inventory can be revalidated against the size and
+ * modification time of its files and directories, without a walk. The
+ * inventory is kept in a binary index below {@code .lugbot}, and can be
+ * updated from a change journal without scanning again.
+ *
+ * @author Gregory Amerson
+ */
+public class RepositoryInventory {
+
+	public static final String INDEX_NAME = "inventory.index";
+
+	/**
+	 * Loads the inventory of {@code repoPath} from its index, or returns an
+	 * empty inventory when there is no usable index yet. When
+	 * {@code gitignore} is set the patterns of the {@code .gitignore} files
+	 * are added to {@code exclusionRules}. Files larger than
+	 * {@code maxHashSize} are listed without a hash.
+	 */
+	public static RepositoryInventory load(
+		Path repoPath, ExclusionRules exclusionRules, boolean gitignore,
+		GeneratedSourceDetector generatedSourceDetector, long maxHashSize) {
+
+		RepositoryInventory repositoryInventory = new RepositoryInventory(
+			repoPath, exclusionRules, gitignore, generatedSourceDetector, maxHashSize);
+
+		Path indexPath = repositoryInventory._getIndexPath();
+
+		if (Files.exists(indexPath)) {
+			try {
+				repositoryInventory._read(indexPath);
+			}
+			catch (IOException ioe) {
+				repositoryInventory._entries = new TreeMap<>();
+			}
+		}
+
+		return repositoryInventory;
+	}
+
+	/**
+	 * Returns the files below {@code dirPath}, ordered by path.
+	 */
+	public List<Entry> getEntries(Path dirPath) {
+		String relativePath = _toRelativePath(dirPath);
+
+		NavigableMap<String, Entry> entries = _entries;
+
+		if (relativePath == null) {
+			return Collections.emptyList();
+		}
+
+		if (relativePath.isEmpty()) {
+			return new ArrayList<>(entries.values());
+		}
+
+		return new ArrayList<>(
+			entries.subMap(
+				relativePath + "/", true, relativePath + "0", false
+			).values());
+	}
+
+	public Entry getEntry(Path path) {
+		String relativePath = _toRelativePath(path);
+
+		if ((relativePath == null) || relativePath.isEmpty()) {
+			return null;
+		}
+
+		return _entries.get(relativePath);
+	}
+
+	public long getRefreshTime() {
+		return _refreshTime;
+	}
+
+	public Path getRepoPath() {
+		return _repoPath;
+	}
+
+	public int getSize() {
+		return _entries.size();
+	}
+
+	/**
+	 * Returns whether a scan would leave out {@code path}, because it or one
+	 * of its parents is excluded.
+	 */
+	public boolean isExcluded(Path path) {
+		String relativePath = _toRelativePath(path);
+
+		if (relativePath == null) {
+			return true;
+		}
+
+		if (relativePath.isEmpty()) {
+			return false;
+		}
+
+		ExclusionRules exclusionRules = _readGitignore(_exclusionRules, "");
+
+		int index = 0;
+
+		while (true) {
+			int next = relativePath.indexOf('/', index);
+
+			String currentPath = (next < 0) ? relativePath : relativePath.substring(0, next);
+
+			boolean directory = (next >= 0) || Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+
+			if (directory && _isSkippedDir(_repoPath.resolve(currentPath))) {
+				return true;
+			}
+
+			if (exclusionRules.isExcluded(currentPath, directory)) {
+				return true;
+			}
+
+			if (next < 0) {
+				return false;
+			}
+
+			exclusionRules = _readGitignore(exclusionRules, currentPath);
+
+			index = next + 1;
+		}
+	}
+
+	/**
+	 * Scans the repository on {@code executor}, listing up to
+	 * {@code parallelism} directories at a time, and returns the number of
+	 * files that had to be read because they are new or changed.
+	 */
+	public synchronized int refresh(Executor executor, int parallelism) throws IOException {
+		NavigableMap<String, Entry> previousEntries = _entries;
+
+		Map<String, Entry> entries = new ConcurrentHashMap<>();
+		Map<String, FileTime> dirTimes = new ConcurrentHashMap<>();
+		LongAdder filesRead = new LongAdder();
+
+		_scan(
+			executor, parallelism,
+			Collections.singletonList(
+				new ScanTask(
+					_repoPath, _exclusionRules, previousEntries, entries, filesRead, dirTimes,
+					Collections.emptySet())));
+
+		_dirTimes = dirTimes;
+		_entries = new TreeMap<>(entries);
+		_modified = true;
+		_refreshTime = System.currentTimeMillis();
+
+		return filesRead.intValue();
+	}
+
+	/**
+	 * Brings the inventory up to date without walking the repository. The
+	 * files are checked against their size and modification time on
+	 * {@code executor}, those that changed are read again and those that are
+	 * gone are dropped. Only the directories whose modification time changed
+	 * since the last scan are listed again, for new files and directories.
+	 * Changes to {@code .gitignore} files and directories not seen by a scan
+	 * in this session are left to the next refresh. Returns the number of
+	 * files that had to be read.
+	 */
+	public synchronized int revalidate(Executor executor, int parallelism) throws IOException {
+		NavigableMap<String, Entry> previousEntries = _entries;
+		Map<String, FileTime> previousDirTimes = _dirTimes;
+
+		Map<String, Entry> entries = new ConcurrentHashMap<>();
+		Map<String, FileTime> dirTimes = new ConcurrentHashMap<>();
+		Set<String> changedDirs = ConcurrentHashMap.newKeySet();
+		LongAdder filesRead = new LongAdder();
+
+		List<Callable<Void>> callables = new ArrayList<>();
+
+		for (List<String> relativeDirs : _partition(new ArrayList<>(previousDirTimes.keySet()), parallelism)) {
+			callables.add(
+				() -> {
+					for (String relativeDir : relativeDirs) {
+						BasicFileAttributes basicFileAttributes = _readAttributes(_repoPath.resolve(relativeDir));
+
+						if ((basicFileAttributes == null) || !basicFileAttributes.isDirectory()) {
+							continue;
+						}
+
+						FileTime lastModifiedTime = basicFileAttributes.lastModifiedTime();
+
+						if (lastModifiedTime.equals(previousDirTimes.get(relativeDir))) {
+							dirTimes.put(relativeDir, lastModifiedTime);
+						}
+						else {
+							changedDirs.add(relativeDir);
+						}
+					}
+
+					return null;
+				});
+		}
+
+		for (List<Entry> previousEntryList : _partition(new ArrayList<>(previousEntries.values()), parallelism)) {
+			callables.add(
+				() -> {
+					for (Entry entry : previousEntryList) {
+						BasicFileAttributes basicFileAttributes = _readAttributes(entry._path);
+
+						if ((basicFileAttributes == null) || !basicFileAttributes.isRegularFile()) {
+							continue;
+						}
+
+						if (entry._isCurrent(basicFileAttributes)) {
+							entries.put(entry._relativePath, entry);
+						}
+						else {
+							entries.put(
+								entry._relativePath, _newEntry(entry._relativePath, entry._path, basicFileAttributes));
+
+							filesRead.increment();
+						}
+					}
+
+					return null;
+				});
+		}
+
+		_invokeAll(executor, parallelism, callables);
+
+		List<ScanTask> scanTasks = new ArrayList<>();
+
+		for (String relativeDir : changedDirs) {
+			scanTasks.add(
+				new ScanTask(
+					_repoPath.resolve(relativeDir), _getExclusionRules(relativeDir), entries, entries, filesRead,
+					dirTimes, previousDirTimes.keySet()));
+		}
+
+		_scan(executor, parallelism, scanTasks);
+
+		if ((filesRead.intValue() > 0) || (entries.size() != previousEntries.size())) {
+			_entries = new TreeMap<>(entries);
+			_modified = true;
+		}
+
+		_dirTimes = dirTimes;
+
+		return filesRead.intValue();
+	}
+
+	/**
+	 * Writes the index if the inventory changed since it was loaded or last
+	 * saved.
+	 */
+	public synchronized void save() throws IOException {
+		if (!_modified) {
+			return;
+		}
+
+		Path indexPath = LugbotWorkDir.resolve(_repoPath, INDEX_NAME);
+
+		Path tempPath = Files.createTempFile(indexPath.getParent(), INDEX_NAME, ".tmp");
+
+		try {
+			try (DataOutputStream dataOutputStream = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+
+				dataOutputStream.writeInt(_FORMAT_VERSION);
+				dataOutputStream.writeLong(_refreshTime);
+				dataOutputStream.writeInt(_entries.size());
+
+				for (Entry entry : _entries.values()) {
+					dataOutputStream.writeUTF(entry._relativePath);
+					dataOutputStream.writeLong(entry._size);
+					dataOutputStream.writeLong(entry._lastModifiedNanos);
+					dataOutputStream.writeBoolean(entry._generated);
+
+					if (entry._hash == null) {
+						dataOutputStream.writeByte(0);
+					}
+					else {
+						dataOutputStream.writeByte(entry._hash.length);
+						dataOutputStream.write(entry._hash);
+					}
+				}
+			}
+
+			Files.move(tempPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(tempPath);
+		}
+
+		_modified = false;
+	}
+
+	/**
+	 * Brings the paths recorded in {@code changeJournal} up to date, so the
+	 * files a provider wrote do not need another scan.
+	 */
+	public synchronized void update(ChangeJournal changeJournal) throws IOException {
+		NavigableMap<String, Entry> entries = new TreeMap<>(_entries);
+		Map<String, FileTime> dirTimes = new ConcurrentHashMap<>(_dirTimes);
+
+		for (String relativePath : changeJournal.getPaths()) {
+			entries.remove(relativePath);
+
+			entries.subMap(
+				relativePath + "/", true, relativePath + "0", false
+			).clear();
+
+			Path path = _repoPath.resolve(relativePath);
+
+			if (isExcluded(path)) {
+				continue;
+			}
+
+			if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+				Map<String, Entry> dirEntries = new ConcurrentHashMap<>();
+
+				_scan(
+					Runnable::run, 1,
+					Collections.singletonList(
+						new ScanTask(
+							path, _getExclusionRules(relativePath), _entries, dirEntries, new LongAdder(), dirTimes,
+							Collections.emptySet())));
+
+				entries.putAll(dirEntries);
+			}
+			else if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+				BasicFileAttributes basicFileAttributes = Files.readAttributes(
+					path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+				entries.put(relativePath, _newEntry(relativePath, path, basicFileAttributes));
+			}
+		}
+
+		_dirTimes = dirTimes;
+		_entries = entries;
+		_modified = true;
+	}
+
+	public static class Entry {
+
+		public String getExtension() {
+			String fileName = _relativePath.substring(_relativePath.lastIndexOf('/') + 1);
+
+			return fileName.substring(fileName.lastIndexOf('.') + 1);
+		}
+
+		/**
+		 * Returns the hex SHA-256 of the content, or {@code null} when the
+		 * file was too large to hash.
+		 */
+		public String getHash() {
+			if (_hash == null) {
+				return null;
+			}
+
+			StringBuilder sb = new StringBuilder(_hash.length * 2);
+
+			for (byte b : _hash) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+
+			return sb.toString();
+		}
+
+		public FileTime getLastModifiedTime() {
+			return FileTime.from(_lastModifiedNanos, TimeUnit.NANOSECONDS);
+		}
+
+		public Path getPath() {
+			return _path;
+		}
+
+		public String getRelativePath() {
+			return _relativePath;
+		}
+
+		public long getSize() {
+			return _size;
+		}
+
+		/**
+		 * Returns whether the content has the given SHA-256, which is never
+		 * the case when the file was too large to hash.
+		 */
+		public boolean hasHash(byte[] hash) {
+			if (_hash == null) {
+				return false;
+			}
+
+			return MessageDigest.isEqual(_hash, hash);
+		}
+
+		public boolean isGenerated() {
+			return _generated;
+		}
+
+		private Entry(
+			String relativePath, Path path, long size, long lastModifiedNanos, boolean generated, byte[] hash) {
+
+			_relativePath = relativePath;
+			_path = path;
+			_size = size;
+			_lastModifiedNanos = lastModifiedNanos;
+			_generated = generated;
+			_hash = hash;
+		}
+
+		private boolean _isCurrent(BasicFileAttributes basicFileAttributes) {
+			if ((_size == basicFileAttributes.size()) &&
+				getLastModifiedTime(
+				).equals(
+					basicFileAttributes.lastModifiedTime()
+				)) {
+
+				return true;
+			}
+
+			return false;
+		}
+
+		private final boolean _generated;
+		private final byte[] _hash;
+		private final long _lastModifiedNanos;
+		private final Path _path;
+		private final String _relativePath;
+		private final long _size;
+
+	}
+
+	private static <T> List<T> _invokeAll(Executor executor, int parallelism, List<? extends Callable<T>> callables)
+		throws IOException {
+
+		try {
+			return ParallelTasks.invokeAllOrFail(executor, parallelism, callables);
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			throw new IOException(cause);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+
+			throw new IOException(ie);
+		}
+	}
+
+	/**
+	 * Returns whether {@code dirPath} is never scanned: the git directory, the
+	 * Lugbot work directory, or a {@code build} or {@code target} directory
+	 * next to a build file, which holds the output of that project. Other
+	 * directories with those names, such as Java packages, are scanned.
+	 */
+	private static boolean _isSkippedDir(Path dirPath) {
+		String name = String.valueOf(dirPath.getFileName());
+
+		if (name.equals(".git") || name.equals(LugbotWorkDir.NAME)) {
+			return true;
+		}
+
+		if (!name.equals("build") && !name.equals("target")) {
+			return false;
+		}
+
+		Path parentPath = dirPath.getParent();
+
+		if (parentPath == null) {
+			return false;
+		}
+
+		for (String buildFileName : _BUILD_FILE_NAMES) {
+			if (Files.isRegularFile(parentPath.resolve(buildFileName))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Splits {@code list} into about four slices per thread, so the threads
+	 * stay busy while each task still covers many files.
+	 */
+	private static <T> List<List<T>> _partition(List<T> list, int parallelism) {
+		List<List<T>> lists = new ArrayList<>();
+
+		int size = Math.max(1, (list.size() + (parallelism * 4) - 1) / Math.max(1, parallelism * 4));
+
+		for (int i = 0; i < list.size(); i += size) {
+			lists.add(list.subList(i, Math.min(i + size, list.size())));
+		}
+
+		return lists;
+	}
+
+	private static BasicFileAttributes _readAttributes(Path path) throws IOException {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		}
+		catch (NoSuchFileException nsfe) {
+			return null;
+		}
+	}
+
+	private RepositoryInventory(
+		Path repoPath, ExclusionRules exclusionRules, boolean gitignore,
+		GeneratedSourceDetector generatedSourceDetector, long maxHashSize) {
+
+		_repoPath = repoPath.toAbsolutePath(
+		).normalize();
+		_exclusionRules = exclusionRules;
+		_gitignore = gitignore;
+		_generatedSourceDetector = generatedSourceDetector;
+		_maxHashSize = maxHashSize;
+	}
+
+	/**
+	 * Returns the rules that apply to the contents of {@code relativeDir},
+	 * apart from those of its own {@code .gitignore}.
+	 */
+	private ExclusionRules _getExclusionRules(String relativeDir) {
+		if (relativeDir.isEmpty()) {
+			return _exclusionRules;
+		}
+
+		ExclusionRules exclusionRules = _readGitignore(_exclusionRules, "");
+
+		for (int index = relativeDir.indexOf('/'); index > 0; index = relativeDir.indexOf('/', index + 1)) {
+			exclusionRules = _readGitignore(exclusionRules, relativeDir.substring(0, index));
+		}
+
+		return exclusionRules;
+	}
+
+	private Path _getIndexPath() {
+		return _repoPath.resolve(
+			LugbotWorkDir.NAME
+		).resolve(
+			INDEX_NAME
+		);
+	}
+
+	private MessageDigest _getMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException(nsae);
+		}
+	}
+
+	private Entry _newEntry(String relativePath, Path path, BasicFileAttributes basicFileAttributes) {
+		long size = basicFileAttributes.size();
+		long lastModifiedNanos = basicFileAttributes.lastModifiedTime(
+		).to(
+			TimeUnit.NANOSECONDS
+		);
+
+		if (size > _maxHashSize) {
+			return new Entry(relativePath, path, size, lastModifiedNanos, false, null);
+		}
+
+		FileContent fileContent;
+
+		try {
+			fileContent = FileFunctions.readContent(path, _maxHashSize);
+		}
+		catch (IOException ioe) {
+			return new Entry(relativePath, path, size, lastModifiedNanos, false, null);
+		}
+
+		MessageDigest messageDigest = _getMessageDigest();
+
+		messageDigest.update(fileContent.getByteBuffer());
+
+		return new Entry(
+			relativePath, path, size, lastModifiedNanos, _generatedSourceDetector.isGenerated(fileContent),
+			messageDigest.digest());
+	}
+
+	private void _read(Path indexPath) throws IOException {
+		try (DataInputStream dataInputStream = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(indexPath)))) {
+
+			if (dataInputStream.readInt() != _FORMAT_VERSION) {
+				return;
+			}
+
+			long refreshTime = dataInputStream.readLong();
+
+			int count = dataInputStream.readInt();
+
+			NavigableMap<String, Entry> entries = new TreeMap<>();
+
+			for (int i = 0; i < count; i++) {
+				String relativePath = dataInputStream.readUTF();
+				long size = dataInputStream.readLong();
+				long lastModifiedNanos = dataInputStream.readLong();
+				boolean generated = dataInputStream.readBoolean();
+
+				byte[] hash = null;
+
+				int hashLength = dataInputStream.readUnsignedByte();
+
+				if (hashLength > 0) {
+					hash = new byte[hashLength];
+
+					dataInputStream.readFully(hash);
+				}
+
+				entries.put(
+					relativePath,
+					new Entry(
+						relativePath, _repoPath.resolve(relativePath), size, lastModifiedNanos, generated, hash));
+			}
+
+			_entries = entries;
+			_refreshTime = refreshTime;
+		}
+	}
+
+	private ExclusionRules _readGitignore(ExclusionRules exclusionRules, String relativeDir) {
+		if (!_gitignore) {
+			return exclusionRules;
+		}
+
+		Path gitignorePath = _repoPath.resolve(
+			relativeDir
+		).resolve(
+			".gitignore"
+		);
+
+		if (!Files.isRegularFile(gitignorePath)) {
+			return exclusionRules;
+		}
+
+		try {
+			return exclusionRules.withPatterns(
+				relativeDir, Arrays.asList(_lineBreakPattern.split(FileFunctions.read(gitignorePath))));
+		}
+		catch (IOException ioe) {
+			return exclusionRules;
+		}
+	}
+
+	/**
+	 * Runs {@code scanTasks} and then the scans of the subdirectories they
+	 * find, one directory level at a time.
+	 */
+	private void _scan(Executor executor, int parallelism, List<ScanTask> scanTasks) throws IOException {
+		while (!scanTasks.isEmpty()) {
+			List<ScanTask> nextScanTasks = new ArrayList<>();
+
+			for (List<ScanTask> childScanTasks : _invokeAll(executor, parallelism, scanTasks)) {
+				nextScanTasks.addAll(childScanTasks);
+			}
+
+			scanTasks = nextScanTasks;
+		}
+	}
+
+	private String _toRelativePath(Path path) {
+		Path absolutePath = path.toAbsolutePath(
+		).normalize();
+
+		if (!absolutePath.startsWith(_repoPath)) {
+			return null;
+		}
+
+		return _repoPath.relativize(
+			absolutePath
+		).toString(
+		).replace(
+			'\\', '/'
+		);
+	}
+
+	private static final String[] _BUILD_FILE_NAMES = {"build.gradle", "build.gradle.kts", "build.xml", "pom.xml"};
+
+	private static final int _FORMAT_VERSION = 1;
+
+	private static final Pattern _lineBreakPattern = Pattern.compile("\\R");
+
+	private volatile Map<String, FileTime> _dirTimes = Collections.emptyMap();
+	private volatile NavigableMap<String, Entry> _entries = new TreeMap<>();
+	private final ExclusionRules _exclusionRules;
+	private final GeneratedSourceDetector _generatedSourceDetector;
+	private final boolean _gitignore;
+	private final long _maxHashSize;
+	private boolean _modified;
+	private volatile long _refreshTime;
+	private final Path _repoPath;
+
+	/**
+	 * Lists one directory and returns the scans of the subdirectories that
+	 * are not excluded and not among the known directories.
+	 */
+	private class ScanTask implements Callable<List<ScanTask>> {
+
+		@Override
+		public List<ScanTask> call() throws IOException {
+			List<ScanTask> scanTasks = new ArrayList<>();
+
+			String relativeDir = _toRelativePath(_dirPath);
+
+			ExclusionRules exclusionRules = _readGitignore(_exclusionRules, relativeDir);
+
+			try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(_dirPath)) {
+				_dirTimes.put(relativeDir, Files.getLastModifiedTime(_dirPath, LinkOption.NOFOLLOW_LINKS));
+
+				for (Path path : directoryStream) {
+					BasicFileAttributes basicFileAttributes = Files.readAttributes(
+						path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+					String relativePath = _toRelativePath(path);
+
+					if (basicFileAttributes.isDirectory()) {
+						if (!_knownDirs.contains(relativePath) && !_isSkippedDir(path) &&
+							!exclusionRules.isExcluded(relativePath, true)) {
+
+							scanTasks.add(
+								new ScanTask(
+									path, exclusionRules, _previousEntries, _scannedEntries, _filesRead, _dirTimes,
+									_knownDirs));
+						}
+
+						continue;
+					}
+
+					if (!basicFileAttributes.isRegularFile() || exclusionRules.isExcluded(relativePath, false)) {
+						continue;
+					}
+
+					Entry entry = _previousEntries.get(relativePath);
+
+					if ((entry == null) || !entry._isCurrent(basicFileAttributes)) {
+
+						entry = _newEntry(relativePath, path, basicFileAttributes);
+
+						_filesRead.increment();
+					}
+
+					_scannedEntries.put(relativePath, entry);
+				}
+			}
+			catch (NoSuchFileException nsfe) {
+				return Collections.emptyList();
+			}
+
+			return scanTasks;
+		}
+
+		private ScanTask(
+			Path dirPath, ExclusionRules exclusionRules, Map<String, Entry> previousEntries,
+			Map<String, Entry> scannedEntries, LongAdder filesRead, Map<String, FileTime> dirTimes,
+			Set<String> knownDirs) {
+
+			_dirPath = dirPath;
+			_exclusionRules = exclusionRules;
+			_previousEntries = previousEntries;
+			_scannedEntries = scannedEntries;
+			_filesRead = filesRead;
+			_dirTimes = dirTimes;
+			_knownDirs = knownDirs;
+		}
+
+		private final Path _dirPath;
+		private final Map<String, FileTime> _dirTimes;
+		private final ExclusionRules _exclusionRules;
+		private final LongAdder _filesRead;
+		private final Set<String> _knownDirs;
+		private final Map<String, Entry> _previousEntries;
+		private final Map<String, Entry> _scannedEntries;
+
+	}
+
+}
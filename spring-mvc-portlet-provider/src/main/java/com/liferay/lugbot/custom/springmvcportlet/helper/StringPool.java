@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.helper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out one shared instance per distinct string value, so strings that
+ * repeat across many objects, like problem titles, are only kept once.
+ *
+ * @author Gregory Amerson
+ */
+public class StringPool {
+
+	public String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+
+		String pooledValue = _values.putIfAbsent(value, value);
+
+		if (pooledValue == null) {
+			return value;
+		}
+
+		return pooledValue;
+	}
+
+	public int size() {
+		return _values.size();
+	}
+
+	private final ConcurrentMap<String, String> _values = new ConcurrentHashMap<>();
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * @author Gregory Amerson
+ */
+@Category({"Lugbot", "Spring MVC Portlet"})
+@Description("AutoFileMigrator analyze call for one file")
+@Label("Analyze File")
+@Name("com.liferay.lugbot.springmvcportlet.Analyze")
+public class AnalyzeEvent extends Event {
+
+	@DataAmount
+	@Label("Bytes")
+	public long bytes;
+
+	@Label("Cached")
+	public boolean cached;
+
+	@Label("Migrator")
+	public String migrator;
+
+	@Label("Path")
+	public String path;
+
+	@Label("Problems")
+	public int problems;
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power of two microsecond buckets, good
+ * enough to tell a 1 ms migrator from a 1 s one.
+ *
+ * @author Gregory Amerson
+ */
+public class LatencyHistogram {
+
+	public long getCount() {
+		return _count.sum();
+	}
+
+	public long getMaxNanos() {
+		return _max.get();
+	}
+
+	public long getTotalNanos() {
+		return _total.sum();
+	}
+
+	/**
+	 * Returns the upper bound, in nanoseconds, of the bucket holding the
+	 * given percentile.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = getCount();
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = (long)Math.ceil((percentile / 100) * count);
+
+		long seen = 0;
+
+		for (int i = 0; i < _BUCKETS; i++) {
+			seen += _buckets.get(i);
+
+			if (seen >= rank) {
+				return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << i), getMaxNanos());
+			}
+		}
+
+		return getMaxNanos();
+	}
+
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+
+		int bucket = Math.min(_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+		_buckets.incrementAndGet(bucket);
+		_count.increment();
+		_max.accumulate(nanos);
+		_total.add(nanos);
+	}
+
+	private static final int _BUCKETS = 40;
+
+	private final AtomicLongArray _buckets = new AtomicLongArray(_BUCKETS);
+	private final LongAdder _count = new LongAdder();
+	private final LongAccumulator _max = new LongAccumulator(Math::max, 0);
+	private final LongAdder _total = new LongAdder();
+
+}
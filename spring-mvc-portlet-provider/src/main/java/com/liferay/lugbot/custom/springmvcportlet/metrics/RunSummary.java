@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liferay.lugbot.custom.springmvcportlet.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, phase timings and per-migrator latency histograms of one
+ * provider run. It is filled concurrently by the provider and rendered into
+ * the details of the proposal.
+ *
+ * @author Gregory Amerson
+ */
+public class RunSummary {
+
+	public RunSummary(String name) {
+		_name = name;
+	}
+
+	public void add(String counter, long delta) {
+		_counters.computeIfAbsent(
+			counter, key -> new LongAdder()
+		).add(
+			delta
+		);
+	}
+
+	/**
+	 * Adds the counters of another summary, such as the summary of a single
+	 * plugin, to this one.
+	 */
+	public void addAll(RunSummary runSummary) {
+		runSummary._counters.forEach((counter, value) -> add(counter, value.sum()));
+	}
+
+	public long get(String counter) {
+		LongAdder longAdder = _counters.get(counter);
+
+		if (longAdder == null) {
+			return 0;
+		}
+
+		return longAdder.sum();
+	}
+
+	public LatencyHistogram getHistogram(String name) {
+		return _histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+	}
+
+	public void increment(String counter) {
+		add(counter, 1);
+	}
+
+	public Phase startPhase(String name) {
+		return new Phase(name);
+	}
+
+	public String toMarkdown() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("### ");
+		sb.append(_name);
+		sb.append(" run summary\n\n");
+
+		_counters.forEach(
+			(counter, value) -> {
+				sb.append("- ");
+				sb.append(counter);
+				sb.append(": ");
+				sb.append(value.sum());
+				sb.append("\n");
+			});
+
+		synchronized (_phases) {
+			_phases.forEach(
+				(phase, nanos) -> {
+					sb.append("- ");
+					sb.append(phase);
+					sb.append(" time: ");
+					sb.append(TimeUnit.NANOSECONDS.toMillis(nanos));
+					sb.append(" ms\n");
+				});
+		}
+
+		if (!_histograms.isEmpty()) {
+			sb.append("\n| | calls | total ms | p50 ms | p99 ms | max ms |\n");
+			sb.append("|---|---:|---:|---:|---:|---:|\n");
+
+			_histograms.forEach(
+				(name, histogram) -> {
+					sb.append("| ");
+					sb.append(name);
+					sb.append(" | ");
+					sb.append(histogram.getCount());
+					sb.append(" | ");
+					sb.append(_toMillis(histogram.getTotalNanos()));
+					sb.append(" | ");
+					sb.append(_toMillis(histogram.getValueAtPercentile(50)));
+					sb.append(" | ");
+					sb.append(_toMillis(histogram.getValueAtPercentile(99)));
+					sb.append(" | ");
+					sb.append(_toMillis(histogram.getMaxNanos()));
+					sb.append(" |\n");
+				});
+		}
+
+		return sb.toString();
+	}
+
+	public class Phase implements AutoCloseable {
+
+		@Override
+		public void close() {
+			_phases.merge(_phaseName, System.nanoTime() - _start, Long::sum);
+		}
+
+		private Phase(String phaseName) {
+			_phaseName = phaseName;
+		}
+
+		private final String _phaseName;
+		private final long _start = System.nanoTime();
+
+	}
+
+	private static String _toMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.1f", nanos / 1000000.0);
+	}
+
+	private final Map<String, LongAdder> _counters = new ConcurrentSkipListMap<>();
+	private final Map<String, LatencyHistogram> _histograms = new ConcurrentSkipListMap<>();
+	private final String _name;
+	private final Map<String, Long> _phases = Collections.synchronizedMap(new LinkedHashMap<>());
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.liferay.lugbot.custom.springmvcportlet;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executor for blocking file and git I/O. On Java 21 and later
+ * each task gets a virtual thread of its own, so a task blocked on the file
+ * system or a pack file does not hold a platform thread. The callers bound
+ * how many tasks they run at a time, so there is no pool size to apply.
+ *
+ * @author Gregory Amerson
+ */
+class IOExecutors {
+
+	static ExecutorService newExecutorService(int poolSize, int queueSize, boolean virtualThreads) {
+		if (virtualThreads) {
+			return Executors.newThreadPerTaskExecutor(
+				Thread.ofVirtual(
+				).name(
+					"lugbot-io-", 1
+				).factory());
+		}
+
+		return UpgradeExecutors.newThreadPool("lugbot-io-", poolSize, queueSize);
+	}
+
+	static boolean supportsVirtualThreads() {
+		return true;
+	}
+
+}